@@ -0,0 +1,70 @@
+package com.stream.benchmark;
+
+import com.stream.bean.Creater;
+import com.stream.bean.Dish;
+import com.stream.bean.Trader;
+import com.stream.bean.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * 基准测试数据：在原有示例数据的基础上按指定规模生成，固定随机种子，保证每次运行数据相同
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 20200628L;
+
+    private static final String[] CITIES = {"Cambridge", "Milan", "London", "Beijing", "Shanghai", "Paris"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 以 Creater.createDish() 中的菜肴为模板，名称加编号、热量随机浮动
+     */
+    static List<Dish> menu(int size) {
+        List<Dish> templates = Creater.createDish();
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Dish> menu = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Dish template = templates.get(i % templates.size());
+            menu.add(new Dish(template.getName() + (i / templates.size()),
+                    template.isVegetarian(),
+                    random.nextInt(50, 1000),
+                    template.getType()));
+        }
+        return menu;
+    }
+
+    /**
+     * 交易员数量为交易数量的 1/100（至少 4 个），年份在 2010~2014 之间
+     */
+    static List<Transaction> transactions(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int traderCount = Math.max(4, size / 100);
+        List<Trader> traders = new ArrayList<>(traderCount);
+        for (int i = 0; i < traderCount; i++) {
+            traders.add(new Trader("Trader" + i, CITIES[random.nextInt(CITIES.length)]));
+        }
+        List<Transaction> transactions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            transactions.add(new Transaction(traders.get(random.nextInt(traderCount)),
+                    random.nextInt(2010, 2015),
+                    random.nextInt(100, 1100)));
+        }
+        return transactions;
+    }
+
+    static List<Integer> numbers(int size) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Integer> numbers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(random.nextInt(size));
+        }
+        return numbers;
+    }
+}
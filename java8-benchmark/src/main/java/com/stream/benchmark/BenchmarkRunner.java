@@ -0,0 +1,30 @@
+package com.stream.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * 基准测试入口：默认开启 GC 分析器（输出每次操作的分配字节数 gc.alloc.rate.norm），结果写入 jmh-result.json
+ * 可以追加 JMH 的命令行参数，例如只跑分组相关的查询、只跑 10 万规模：
+ * java -jar target/benchmarks.jar "DishBenchmark.test2[0-5]" -p size=100000
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
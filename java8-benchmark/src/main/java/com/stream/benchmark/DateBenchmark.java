@@ -0,0 +1,112 @@
+package com.stream.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * DateTest 中各个操作的基准测试，方法名前缀对应 DateTest 中的测试编号
+ * 每次调用对 size 个日期执行同样的操作
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private LocalDate[] dates;
+    private String[] isoStrings;
+    private String[] basicStrings;
+
+    @Setup
+    public void setUp() {
+        LocalDate start = LocalDate.of(2020, 7, 8);
+        dates = new LocalDate[size];
+        isoStrings = new String[size];
+        basicStrings = new String[size];
+        for (int i = 0; i < size; i++) {
+            dates[i] = start.plusDays(i);
+            isoStrings[i] = dates[i].format(DateTimeFormatter.ISO_LOCAL_DATE);
+            basicStrings[i] = dates[i].format(DateTimeFormatter.BASIC_ISO_DATE);
+        }
+    }
+
+    private IntStream indexes() {
+        IntStream stream = IntStream.range(0, size);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    @Benchmark
+    public long test01Fields() {
+        return indexes().mapToLong(i -> {
+            LocalDate date = dates[i];
+            return date.getYear() + date.getMonthValue() + date.getDayOfMonth()
+                    + date.getDayOfWeek().getValue() + date.lengthOfMonth() + (date.isLeapYear() ? 1 : 0);
+        }).sum();
+    }
+
+    @Benchmark
+    public void test02Now(Blackhole blackhole) {
+        indexes().forEach(i -> blackhole.consume(LocalDate.now()));
+    }
+
+    @Benchmark
+    public long test03Time() {
+        return indexes().mapToLong(i -> {
+            LocalTime time = LocalTime.of(i % 24, i % 60, i % 60);
+            return time.getHour() + time.getMinute() + time.getSecond();
+        }).sum();
+    }
+
+    @Benchmark
+    public long test04Parse() {
+        return indexes().mapToLong(i -> LocalDate.parse(isoStrings[i]).toEpochDay()).sum();
+    }
+
+    @Benchmark
+    public void test05DateTimeNow(Blackhole blackhole) {
+        indexes().forEach(i -> blackhole.consume(LocalDateTime.now()));
+    }
+
+    @Benchmark
+    public long test06With() {
+        return indexes().mapToLong(i -> dates[i].withYear(2021).withDayOfMonth(22)
+                .with(ChronoField.MONTH_OF_YEAR, 5).toEpochDay()).sum();
+    }
+
+    @Benchmark
+    public long test07Plus() {
+        return indexes().mapToLong(i -> dates[i].with(ChronoField.MONTH_OF_YEAR, 9)
+                .plusYears(2).minusDays(2).toEpochDay()).sum();
+    }
+
+    @Benchmark
+    public void test08Format(Blackhole blackhole) {
+        indexes().forEach(i -> {
+            blackhole.consume(dates[i].format(DateTimeFormatter.BASIC_ISO_DATE));
+            blackhole.consume(dates[i].format(DateTimeFormatter.ISO_LOCAL_DATE));
+        });
+    }
+
+    @Benchmark
+    public long test09ParseBasic() {
+        return indexes().mapToLong(i -> LocalDate.parse(basicStrings[i], DateTimeFormatter.BASIC_ISO_DATE).toEpochDay()).sum();
+    }
+}
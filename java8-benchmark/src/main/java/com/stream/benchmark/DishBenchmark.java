@@ -0,0 +1,249 @@
+package com.stream.benchmark;
+
+import com.stream.bean.CaloricLevel;
+import com.stream.bean.Dish;
+import com.stream.bean.DishTable;
+import com.stream.collector.EnumCollectors;
+import com.stream.collector.EnumCube;
+import com.stream.collector.TopKCollectors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * DishTest 中各个查询的基准测试，方法名前缀对应 DishTest 中的测试编号
+ * size 为菜单规模，parallel 控制使用 stream() 还是 parallelStream()
+ * 后半部分是 DishTable、EnumCollectors、TopKCollectors 等替代实现，便于与原写法对照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DishBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private List<Dish> menu;
+    private DishTable table;
+
+    @Setup
+    public void setUp() {
+        menu = BenchmarkData.menu(size);
+        table = DishTable.of(menu);
+    }
+
+    private Stream<Dish> stream() {
+        return parallel ? menu.parallelStream() : menu.stream();
+    }
+
+    @Benchmark
+    public List<Dish> test01FilterSortedToList() {
+        return stream()
+                .filter(d -> d.getCalories() < 400)
+                .sorted(Comparator.comparing(Dish::getCalories))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> test02FilterMapLimit() {
+        return stream()
+                .filter(d -> d.getCalories() > 300)
+                .map(Dish::getName)
+                .limit(3)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Set<String> test03NamesToSet() {
+        return stream().map(Dish::getName).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public List<Dish> test05Vegetarian() {
+        return stream().filter(Dish::isVegetarian).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public boolean test06AnyMatch() {
+        return stream().anyMatch(Dish::isVegetarian);
+    }
+
+    @Benchmark
+    public boolean test07AllMatch() {
+        return stream().allMatch(d -> d.getCalories() < 1000);
+    }
+
+    @Benchmark
+    public boolean test08NoneMatch() {
+        return stream().noneMatch(d -> d.getCalories() >= 1000);
+    }
+
+    @Benchmark
+    public Optional<Dish> test09FindAny() {
+        return stream().filter(Dish::isVegetarian).findAny();
+    }
+
+    @Benchmark
+    public long test10Count() {
+        return stream().count();
+    }
+
+    @Benchmark
+    public int test11BoxedReduce() {
+        return stream().map(Dish::getCalories).reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public int test12MapToIntSum() {
+        return stream().mapToInt(Dish::getCalories).sum();
+    }
+
+    @Benchmark
+    public OptionalInt test14Max() {
+        return stream().mapToInt(Dish::getCalories).max();
+    }
+
+    @Benchmark
+    public Optional<Dish> test15MaxBy() {
+        return stream().collect(Collectors.maxBy(Comparator.comparingInt(Dish::getCalories)));
+    }
+
+    @Benchmark
+    public int test16SummingInt() {
+        return stream().collect(Collectors.summingInt(Dish::getCalories));
+    }
+
+    @Benchmark
+    public Double test17AveragingInt() {
+        return stream().collect(Collectors.averagingInt(Dish::getCalories));
+    }
+
+    @Benchmark
+    public IntSummaryStatistics test18SummarizingInt() {
+        return stream().collect(Collectors.summarizingInt(Dish::getCalories));
+    }
+
+    @Benchmark
+    public String test19Joining() {
+        return stream().map(Dish::getName).collect(Collectors.joining(", "));
+    }
+
+    @Benchmark
+    public Map<Dish.Type, List<Dish>> test20GroupingByType() {
+        return stream().collect(Collectors.groupingBy(Dish::getType));
+    }
+
+    @Benchmark
+    public Map<CaloricLevel, List<Dish>> test21GroupingByLevelLambda() {
+        return stream().collect(Collectors.groupingBy(dish -> {
+            if (dish.getCalories() <= 400)
+                return CaloricLevel.DIET;
+            else if (dish.getCalories() <= 700)
+                return CaloricLevel.NORMAL;
+            else
+                return CaloricLevel.FAT;
+        }));
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Map<CaloricLevel, List<Dish>>> test22MultiLevelGrouping() {
+        return stream().collect(Collectors.groupingBy(Dish::getType,
+                Collectors.groupingBy(Dish::getCaloriecLevel)));
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Long> test23CountingByType() {
+        return stream().collect(Collectors.groupingBy(Dish::getType, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Optional<Dish>> test24MaxByType() {
+        return stream().collect(Collectors.groupingBy(Dish::getType,
+                Collectors.maxBy(Comparator.comparing(Dish::getCalories))));
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Integer> test25SummingByType() {
+        return stream().collect(Collectors.groupingBy(Dish::getType,
+                Collectors.summingInt(Dish::getCalories)));
+    }
+
+    @Benchmark
+    public Map<Boolean, List<Dish>> test26Partitioning() {
+        return stream().collect(Collectors.partitioningBy(Dish::isVegetarian));
+    }
+
+    @Benchmark
+    public Set<Dish> test27VegetarianToSet() {
+        return stream().filter(Dish::isVegetarian).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public Map<CaloricLevel, List<Dish>> test28GroupingByLevel() {
+        return stream().collect(Collectors.groupingBy(Dish::getCaloriecLevel));
+    }
+
+    @Benchmark
+    public List<String> test29FilterMap() {
+        return stream()
+                .filter(dish -> dish.getCalories() > 300)
+                .map(Dish::getName)
+                .collect(Collectors.toList());
+    }
+
+    // ---------------------------- 替代实现 ----------------------------
+
+    @Benchmark
+    public int[] table01FilterSorted() {
+        int[] rows = parallel
+                ? table.rows().parallel().filter(row -> table.getCalories(row) < 400).toArray()
+                : table.filterCalories(c -> c < 400);
+        return table.sortByCalories(rows);
+    }
+
+    @Benchmark
+    public long table12Sum() {
+        return parallel ? table.parallelSumCalories() : table.sumCalories();
+    }
+
+    @Benchmark
+    public IntSummaryStatistics table18Summarizing() {
+        return parallel ? table.rows().parallel().map(table::getCalories).summaryStatistics() : table.summarizeCalories();
+    }
+
+    @Benchmark
+    public long[] table23CountingByType() {
+        return parallel ? table.parallelCountByTypeOrdinal() : table.countByTypeOrdinal();
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Long> enum23CountingByType() {
+        return stream().collect(EnumCollectors.countingByType());
+    }
+
+    @Benchmark
+    public Map<Dish.Type, Long> enum25SummingByType() {
+        return stream().collect(EnumCollectors.summingCaloriesByType());
+    }
+
+    @Benchmark
+    public EnumCube<Dish.Type, CaloricLevel> cube22TypeAndLevel() {
+        return stream().collect(EnumCube.dishesByTypeAndCaloricLevel());
+    }
+
+    @Benchmark
+    public List<Dish> topK01LowestCalories() {
+        return stream().filter(d -> d.getCalories() < 400).collect(TopKCollectors.lowestCalories(10));
+    }
+}
@@ -0,0 +1,130 @@
+package com.stream.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * StreamTest 中各个查询的基准测试，方法名前缀对应 StreamTest 中的测试编号
+ * 勾股数（test13）的上界为 sqrt(size)，保持与其他查询相近的计算量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private List<Integer> numbers;
+    private List<String> words;
+    private List<Integer> small;
+
+    @Setup
+    public void setUp() {
+        numbers = BenchmarkData.numbers(size);
+        words = numbers.stream().map(i -> "word" + i).collect(Collectors.toList());
+        small = numbers.subList(0, Math.min(1000, size));
+    }
+
+    private <T> Stream<T> stream(List<T> list) {
+        return parallel ? list.parallelStream() : list.stream();
+    }
+
+    private IntStream range(int from, int to) {
+        IntStream stream = IntStream.rangeClosed(from, to);
+        return parallel ? stream.parallel() : stream;
+    }
+
+    @Benchmark
+    public List<Integer> test01DistinctEvens() {
+        return stream(numbers).filter(i -> i % 2 == 0).distinct().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> test02OddsSkip() {
+        return stream(numbers).filter(i -> i % 2 == 1).skip(2).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> test03Lengths() {
+        return stream(words).map(String::length).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> test04FlatMapDistinctLetters() {
+        return stream(words)
+                .map(word -> word.split(""))
+                .flatMap(Arrays::stream)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> test05Squares() {
+        return stream(numbers).map(i -> i * i).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<int[]> test06Pairs() {
+        return stream(small)
+                .flatMap(i -> small.stream().map(j -> new int[]{i, j}))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Optional<Integer> test07FindFirstEven() {
+        return stream(numbers).filter(i -> i % 2 == 0).findFirst();
+    }
+
+    @Benchmark
+    public int test08ReduceSum() {
+        return stream(numbers).reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public Optional<Integer> test09ReduceOptional() {
+        return stream(numbers).reduce((a, b) -> a + b);
+    }
+
+    @Benchmark
+    public Optional<Integer> test10Max() {
+        return stream(numbers).reduce(Integer::max);
+    }
+
+    @Benchmark
+    public long test11CountEvens() {
+        return range(1, size).filter(n -> n % 2 == 0).count();
+    }
+
+    @Benchmark
+    public int[] test12Evens() {
+        return range(1, size).filter(n -> n % 2 == 0).toArray();
+    }
+
+    @Benchmark
+    public List<int[]> test13PythagoreanTriples() {
+        int bound = (int) Math.sqrt(size);
+        return range(1, bound)
+                .boxed()
+                .flatMap(a ->
+                        IntStream.rangeClosed(a, bound)
+                                .filter(b -> Math.sqrt(a * a + b * b) % 1 == 0)
+                                .mapToObj(b ->
+                                        new int[]{a, b, (int) Math.sqrt(a * a + b * b)})
+                )
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,153 @@
+package com.stream.benchmark;
+
+import com.stream.bean.Trader;
+import com.stream.bean.Transaction;
+import com.stream.collector.TopKCollectors;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-19
+ * TransactionTest 中各个查询的基准测试，方法名前缀对应 TransactionTest 中的测试编号
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int size;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private List<Transaction> transactions;
+
+    @Setup
+    public void setUp() {
+        transactions = BenchmarkData.transactions(size);
+    }
+
+    private Stream<Transaction> stream() {
+        return parallel ? transactions.parallelStream() : transactions.stream();
+    }
+
+    @Benchmark
+    public List<Transaction> test01Year2011Sorted() {
+        return stream()
+                .filter(t -> t.getYear() == 2011)
+                .sorted(Comparator.comparing(Transaction::getValue))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<String> test02DistinctCities() {
+        return stream().map(t -> t.getTrader().getCity()).distinct().collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Set<String> test03CitiesToSet() {
+        return stream().map(t -> t.getTrader().getCity()).collect(Collectors.toSet());
+    }
+
+    @Benchmark
+    public List<Trader> test04MapThenFilter() {
+        return stream()
+                .map(Transaction::getTrader)
+                .filter(t -> t.getCity().equals("Cambridge"))
+                .distinct()
+                .sorted(Comparator.comparing(Trader::getName))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Trader> test05FilterThenMap() {
+        return stream()
+                .filter(t -> t.getTrader().getCity().equals("Cambridge"))
+                .map(Transaction::getTrader)
+                .distinct()
+                .sorted(Comparator.comparing(Trader::getName))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public String test06StringReduce() {
+        return stream()
+                .map(transaction -> transaction.getTrader().getName())
+                .distinct()
+                .sorted()
+                .reduce("", (n1, n2) -> n1 + n2);
+    }
+
+    @Benchmark
+    public String test07Joining() {
+        return stream()
+                .map(Transaction::getTrader)
+                .map(Trader::getName)
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    @Benchmark
+    public boolean test08AllMatch() {
+        return stream().allMatch(t -> t.getTrader().getCity().equals("Milan"));
+    }
+
+    @Benchmark
+    public List<Trader> test09MilanTraders() {
+        return stream()
+                .map(Transaction::getTrader)
+                .filter(trader -> trader.getCity().equals("Milan"))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Transaction> test10CambridgeTransactions() {
+        return stream()
+                .filter(t -> "Cambridge".equals(t.getTrader().getCity()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> test11CambridgeValues() {
+        return stream()
+                .filter(t -> "Cambridge".equals(t.getTrader().getCity()))
+                .map(Transaction::getValue)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Optional<Integer> test12BoxedMax() {
+        return stream().map(Transaction::getValue).reduce(Integer::max);
+    }
+
+    @Benchmark
+    public Optional<Transaction> test13ReduceMin() {
+        return stream().reduce((t1, t2) -> t1.getValue() < t2.getValue() ? t1 : t2);
+    }
+
+    @Benchmark
+    public Optional<Transaction> test14Min() {
+        return stream().min(Comparator.comparing(Transaction::getValue));
+    }
+
+    @Benchmark
+    public Optional<Integer> test15ReduceMax() {
+        return stream().map(Transaction::getValue).reduce((t1, t2) -> t1 > t2 ? t1 : t2);
+    }
+
+    @Benchmark
+    public List<Transaction> topK01Highest2011() {
+        return stream().filter(t -> t.getYear() == 2011).collect(TopKCollectors.highestValue(100));
+    }
+}
@@ -1,7 +1,39 @@
 package com.stream.bean;
 
 public enum CaloricLevel {
-    DIET,
-    NORMAL,
-    FAT
+    DIET(400),
+    NORMAL(700),
+    FAT(Integer.MAX_VALUE);
+
+    /**
+     * 该等级包含的最高热量（包含边界）
+     */
+    private final int maxCalories;
+
+    CaloricLevel(int maxCalories) {
+        this.maxCalories = maxCalories;
+    }
+
+    public int getMaxCalories() {
+        return maxCalories;
+    }
+
+    /**
+     * 该等级包含的最低热量（包含边界），即上一等级的最高热量 + 1
+     */
+    public int getMinCalories() {
+        return ordinal() == 0 ? Integer.MIN_VALUE : values()[ordinal() - 1].maxCalories + 1;
+    }
+
+    /**
+     * 根据热量计算等级：<=400 为 DIET，<=700 为 NORMAL，其余为 FAT
+     */
+    public static CaloricLevel of(int calories) {
+        if (calories <= DIET.maxCalories)
+            return DIET;
+        else if (calories <= NORMAL.maxCalories)
+            return NORMAL;
+        else
+            return FAT;
+    }
 }
@@ -0,0 +1,150 @@
+package com.stream.bean;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-12
+ * 热量的有序索引
+ * 构建时把所有行按热量排序一次（O(n log n)），保存排序后的热量数组和对应的行号排列。
+ * 之后的区间筛选、计数、热量等级分桶都通过二分查找定位边界：
+ * 计数为 O(log n)，返回行号为 O(log n + k)，k 为结果行数。
+ * 返回的行号按热量从低到高排列（热量相同时按行号排列），因此 test1 不需要再排序。
+ */
+public class CalorieIndex {
+
+    private final int[] sortedCalories;
+    private final int[] rows;
+
+    private CalorieIndex(int[] sortedCalories, int[] rows) {
+        this.sortedCalories = sortedCalories;
+        this.rows = rows;
+    }
+
+    public static CalorieIndex of(DishTable table) {
+        int[] calories = new int[table.size()];
+        for (int row = 0; row < calories.length; row++) {
+            calories[row] = table.getCalories(row);
+        }
+        return of(calories);
+    }
+
+    /**
+     * 由按行号排列的热量数组构建索引
+     */
+    public static CalorieIndex of(int[] calories) {
+        long[] keys = new long[calories.length];
+        for (int row = 0; row < calories.length; row++) {
+            keys[row] = ((long) calories[row] << 32) | row;
+        }
+        Arrays.sort(keys);
+        int[] sortedCalories = new int[keys.length];
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            sortedCalories[i] = (int) (keys[i] >> 32);
+            rows[i] = (int) keys[i];
+        }
+        return new CalorieIndex(sortedCalories, rows);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * 热量在 [from, to] 闭区间内的行数
+     */
+    public int countBetween(int from, int to) {
+        return from > to ? 0 : upperBound(to) - lowerBound(from);
+    }
+
+    /**
+     * 热量 < calories 的行数
+     */
+    public int countLessThan(int calories) {
+        return lowerBound(calories);
+    }
+
+    /**
+     * 热量 > calories 的行数
+     */
+    public int countGreaterThan(int calories) {
+        return rows.length - upperBound(calories);
+    }
+
+    /**
+     * 热量在 [from, to] 闭区间内的行号
+     */
+    public int[] rowsBetween(int from, int to) {
+        return from > to ? new int[0] : Arrays.copyOfRange(rows, lowerBound(from), upperBound(to));
+    }
+
+    public int[] rowsLessThan(int calories) {
+        return Arrays.copyOfRange(rows, 0, lowerBound(calories));
+    }
+
+    public int[] rowsGreaterThan(int calories) {
+        return Arrays.copyOfRange(rows, upperBound(calories), rows.length);
+    }
+
+    /**
+     * 属于某个热量等级的行号，等级边界直接取自 CaloricLevel
+     */
+    public int[] rowsOf(CaloricLevel level) {
+        return rowsBetween(level.getMinCalories(), level.getMaxCalories());
+    }
+
+    public int countOf(CaloricLevel level) {
+        return countBetween(level.getMinCalories(), level.getMaxCalories());
+    }
+
+    /**
+     * 各热量等级的行数，对应 groupingBy(Dish::getCaloriecLevel, counting())，没有菜肴的等级不出现在结果中
+     */
+    public Map<CaloricLevel, Long> countByCaloricLevel() {
+        Map<CaloricLevel, Long> result = new EnumMap<>(CaloricLevel.class);
+        for (CaloricLevel level : CaloricLevel.values()) {
+            int count = countOf(level);
+            if (count > 0) {
+                result.put(level, (long) count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 第一个热量 >= calories 的位置
+     */
+    private int lowerBound(int calories) {
+        int low = 0;
+        int high = sortedCalories.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCalories[mid] < calories) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 第一个热量 > calories 的位置
+     */
+    private int upperBound(int calories) {
+        int low = 0;
+        int high = sortedCalories.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCalories[mid] <= calories) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -1,29 +1,59 @@
 package com.stream.bean;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
 /**
  * @author zyting
  * @sinne 2020-06-28
- * 创建菜单
+ * 创建菜单和交易
+ * 菜肴经过 DishPool 规范化，之前的菜单仍在使用时，多次调用返回的是同一批实例
  */
 public class Creater {
 
    public static List<Dish> createDish(){
 
+       DishPool pool = DishPool.shared();
        List<Dish> menu = Arrays.asList(
-               new Dish("pork",false,800,Dish.Type.MEAT),
-               new Dish("beef",false,700,Dish.Type.MEAT),
-               new Dish("chicken",false,400,Dish.Type.MEAT),
-               new Dish("french fries",true,530,Dish.Type.OTHER),
-               new Dish("rice",true,350,Dish.Type.OTHER),
-               new Dish("season fruit",true,120,Dish.Type.OTHER),
-               new Dish("pizza",true,550,Dish.Type.OTHER),
-               new Dish("prawns",false,300,Dish.Type.FISH),
-               new Dish("salmon",false,450,Dish.Type.FISH));
+               pool.intern("pork",false,800,Dish.Type.MEAT),
+               pool.intern("beef",false,700,Dish.Type.MEAT),
+               pool.intern("chicken",false,400,Dish.Type.MEAT),
+               pool.intern("french fries",true,530,Dish.Type.OTHER),
+               pool.intern("rice",true,350,Dish.Type.OTHER),
+               pool.intern("season fruit",true,120,Dish.Type.OTHER),
+               pool.intern("pizza",true,550,Dish.Type.OTHER),
+               pool.intern("prawns",false,300,Dish.Type.FISH),
+               pool.intern("salmon",false,450,Dish.Type.FISH));
 
        return menu;
    }
 
+   /**
+    * 创建交易，与 TransactionTest 中的交易相同
+    */
+   public static List<Transaction> createTransaction(){
+
+       Trader raoul = new Trader("Troul", "Cambridge");
+       Trader mario = new Trader("Mario", "Milan");
+       Trader alan = new Trader("Alan", "Cambridge");
+       Trader brian = new Trader("Brian", "Cambridge");
+
+       return Arrays.asList(
+               new Transaction(brian,2011,300),
+               new Transaction(raoul,2012,1000),
+               new Transaction(raoul,2011,400),
+               new Transaction(mario,2012,710),
+               new Transaction(mario,2012,700),
+               new Transaction(alan,2012,950));
+   }
+
+   /**
+    * 从 CSV 文件加载菜单，格式见 DishCsvLoader
+    */
+   public static DishTable loadDish(Path file) throws IOException {
+       return new DishCsvLoader().load(file);
+   }
+
 }
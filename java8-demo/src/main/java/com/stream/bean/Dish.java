@@ -13,12 +13,17 @@ public class Dish {
     private final boolean vegetarian;
     private final int calories;
     private final Type type;
+    /**
+     * 字段都是不可变的，哈希值在构造时计算一次并缓存
+     */
+    private final int hash;
 
     public Dish(String name, boolean vegetarian, int calories, Type type) {
         this.name = name;
         this.vegetarian = vegetarian;
         this.calories = calories;
         this.type = type;
+        this.hash = hash(name, vegetarian, calories, type);
     }
 
     public String getName() {
@@ -52,7 +57,8 @@ public class Dish {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Dish dish = (Dish) o;
-        return vegetarian == dish.vegetarian &&
+        return hash == dish.hash &&
+                vegetarian == dish.vegetarian &&
                 calories == dish.calories &&
                 Objects.equals(name, dish.name) &&
                 type == dish.type;
@@ -60,7 +66,21 @@ public class Dish {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, vegetarian, calories, type);
+        return hash;
+    }
+
+    /**
+     * 按 Objects.hash 的方式（31 * h + 字段哈希）依次组合 name、vegetarian、calories、type，但不创建可变参数数组，也不装箱。
+     * type 使用 序号 + 1 参与计算（null 为 0），而不是 type.hashCode()，所以结果与 Objects.hash 不同，
+     * 但在不同的 JVM 进程中保持一致。DishPool 用它在创建 Dish 之前查找。
+     */
+    static int hash(String name, boolean vegetarian, int calories, Type type) {
+        int h = 1;
+        h = 31 * h + (name == null ? 0 : name.hashCode());
+        h = 31 * h + Boolean.hashCode(vegetarian);
+        h = 31 * h + calories;
+        h = 31 * h + (type == null ? 0 : type.ordinal() + 1);
+        return h;
     }
 
     public enum Type {MEAT, FISH, OTHER}
@@ -69,12 +89,7 @@ public class Dish {
      * 自定义一个菜肴热量等级函数
      */
     public CaloricLevel getCaloriecLevel(){
-        if(this.getCalories() <= 400)
-            return  CaloricLevel.DIET;
-        else if(this.getCalories() <= 700)
-            return CaloricLevel.NORMAL;
-        else
-            return CaloricLevel.FAT;
+        return CaloricLevel.of(this.getCalories());
     }
 
 }
@@ -0,0 +1,277 @@
+package com.stream.bean;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-18
+ * 从 CSV 文件批量加载菜单，代替 Creater 中写死的菜肴
+ * 文件格式：每行一道菜，name,vegetarian,calories,type，例如 pork,false,800,MEAT
+ * 第一行恰好是表头 name,vegetarian,calories,type（不区分大小写）时跳过，名称以 name 开头的菜肴不会被当作表头；
+ * vegetarian 和 type 都不区分大小写；名称中含有逗号时可以用双引号括起来（"" 表示一个双引号）。
+ * 文件通过 FileChannel 内存映射，解析直接在字节上进行：vegetarian、calories、type 都不会创建 String，
+ * 只有名称需要解码成 String。超过 2G 的文件按窗口分段映射，跨窗口的行从行首重新映射。
+ */
+public class DishCsvLoader {
+
+    /**
+     * 每次映射的窗口大小
+     */
+    private static final int WINDOW_SIZE = 1 << 30;
+
+    private static final byte[] HEADER = "name,vegetarian,calories,type".getBytes(StandardCharsets.US_ASCII);
+    private static final Dish.Type[] TYPES = Dish.Type.values();
+    private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+
+    static {
+        for (int i = 0; i < TYPES.length; i++) {
+            TYPE_NAMES[i] = TYPES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * 解析出的一行数据
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void accept(String name, boolean vegetarian, int calories, Dish.Type type);
+    }
+
+    private final int windowSize;
+
+    public DishCsvLoader() {
+        this(WINDOW_SIZE);
+    }
+
+    DishCsvLoader(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * 加载为列式菜单
+     */
+    public DishTable load(Path file) throws IOException {
+        DishTable.Builder builder = DishTable.builder();
+        load(file, builder::add);
+        return builder.build();
+    }
+
+    /**
+     * 逐行解析，每行回调一次 handler，返回行数
+     */
+    public long load(Path file, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            long lineNumber = 0;
+            long rows = 0;
+            while (position < fileSize) {
+                long length = Math.min(windowSize, fileSize - position);
+                boolean last = position + length == fileSize;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = (int) length;
+                int start = 0;
+                while (start < limit) {
+                    int end = indexOf(buffer, (byte) '\n', start, limit);
+                    if (end < 0) {
+                        if (!last) {
+                            break;
+                        }
+                        end = limit;
+                    }
+                    lineNumber++;
+                    int lineEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+                    if (lineEnd > start && !(lineNumber == 1 && isHeader(buffer, start, lineEnd))) {
+                        parseLine(buffer, start, lineEnd, lineNumber, handler);
+                        rows++;
+                    }
+                    start = end + 1;
+                }
+                if (start == 0 && !last) {
+                    throw new IllegalArgumentException("line " + (lineNumber + 1) + " is longer than " + windowSize + " bytes");
+                }
+                position += Math.min(start, limit);
+            }
+            return rows;
+        }
+    }
+
+    private static void parseLine(MappedByteBuffer buffer, int start, int end, long lineNumber, RowHandler handler) {
+        // name
+        String name;
+        int pos;
+        if (buffer.get(start) == '"') {
+            NameBytes bytes = new NameBytes(end - start);
+            pos = start + 1;
+            while (true) {
+                if (pos >= end) {
+                    throw malformed(lineNumber, "unterminated quoted name");
+                }
+                byte b = buffer.get(pos++);
+                if (b == '"') {
+                    if (pos < end && buffer.get(pos) == '"') {
+                        bytes.append(b);
+                        pos++;
+                    } else {
+                        break;
+                    }
+                } else {
+                    bytes.append(b);
+                }
+            }
+            name = bytes.toUtf8String();
+            if (pos >= end || buffer.get(pos) != ',') {
+                throw malformed(lineNumber, "expected ',' after name");
+            }
+        } else {
+            pos = indexOf(buffer, (byte) ',', start, end);
+            if (pos < 0) {
+                throw malformed(lineNumber, "expected 4 fields");
+            }
+            name = decode(buffer, start, pos);
+        }
+        // vegetarian
+        int from = pos + 1;
+        int to = indexOf(buffer, (byte) ',', from, end);
+        if (to < 0) {
+            throw malformed(lineNumber, "expected 4 fields");
+        }
+        boolean vegetarian = parseBoolean(buffer, from, to, lineNumber);
+        // calories
+        from = to + 1;
+        to = indexOf(buffer, (byte) ',', from, end);
+        if (to < 0) {
+            throw malformed(lineNumber, "expected 4 fields");
+        }
+        int calories = parseInt(buffer, from, to, lineNumber);
+        // type
+        Dish.Type type = parseType(buffer, to + 1, end, lineNumber);
+        handler.accept(name, vegetarian, calories, type);
+    }
+
+    private static boolean isHeader(MappedByteBuffer buffer, int start, int end) {
+        return equalsIgnoreCase(buffer, start, end, HEADER);
+    }
+
+    private static boolean parseBoolean(MappedByteBuffer buffer, int from, int to, long lineNumber) {
+        int length = to - from;
+        if (length == 1) {
+            byte b = buffer.get(from);
+            if (b == '1') {
+                return true;
+            } else if (b == '0') {
+                return false;
+            }
+        } else if (length == 4 && lower(buffer.get(from)) == 't' && lower(buffer.get(from + 1)) == 'r'
+                && lower(buffer.get(from + 2)) == 'u' && lower(buffer.get(from + 3)) == 'e') {
+            return true;
+        } else if (length == 5 && lower(buffer.get(from)) == 'f' && lower(buffer.get(from + 1)) == 'a'
+                && lower(buffer.get(from + 2)) == 'l' && lower(buffer.get(from + 3)) == 's'
+                && lower(buffer.get(from + 4)) == 'e') {
+            return false;
+        }
+        throw malformed(lineNumber, "invalid vegetarian flag");
+    }
+
+    private static int parseInt(MappedByteBuffer buffer, int from, int to, long lineNumber) {
+        if (from == to) {
+            throw malformed(lineNumber, "empty calories");
+        }
+        boolean negative = buffer.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw malformed(lineNumber, "invalid calories");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed(lineNumber, "invalid calories");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw malformed(lineNumber, "calories out of range");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed(lineNumber, "calories out of range");
+        }
+        return (int) value;
+    }
+
+    private static Dish.Type parseType(MappedByteBuffer buffer, int from, int to, long lineNumber) {
+        for (int t = 0; t < TYPE_NAMES.length; t++) {
+            if (equalsIgnoreCase(buffer, from, to, TYPE_NAMES[t])) {
+                return TYPES[t];
+            }
+        }
+        throw malformed(lineNumber, "invalid type");
+    }
+
+    /**
+     * [from, to) 内的字节与 ASCII 字符串 expected 是否相同，不区分大小写
+     */
+    private static boolean equalsIgnoreCase(MappedByteBuffer buffer, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (lower(buffer.get(from + i)) != lower(expected[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(MappedByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    private static IllegalArgumentException malformed(long lineNumber, String message) {
+        return new IllegalArgumentException("line " + lineNumber + ": " + message);
+    }
+
+    /**
+     * 带引号的名称去掉转义后的字节
+     */
+    private static final class NameBytes {
+
+        private final byte[] bytes;
+        private int length;
+
+        NameBytes(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void append(byte b) {
+            bytes[length++] = b;
+        }
+
+        String toUtf8String() {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.stream.bean;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-14
+ * 菜肴的规范化池：内容相同的菜肴只保留一个实例
+ * 经过 intern 的菜肴可以直接共享，equals 在同一实例上通过 == 立即返回，
+ * 放入 Set、Map 时也不会因为重复的实例占用额外的内存。
+ * 池中只保存弱引用，外部不再使用的菜肴可以被回收，回收后在下次访问同一段时从池中移除，池不会一直增长。
+ * 按哈希值分成 SEGMENTS 段，每段单独加锁；按字段查找时先查池，命中时不创建 Dish。
+ * 线程安全。
+ */
+public class DishPool {
+
+    /**
+     * 段数，取哈希值的高 4 位
+     */
+    private static final int SEGMENTS = 16;
+    private static final DishPool SHARED = new DishPool();
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public DishPool() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * 全局共享的池，Creater 创建的菜肴都来自这里
+     */
+    public static DishPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * 返回与 dish 内容相同的规范实例，第一次出现的菜肴本身成为规范实例
+     */
+    public Dish intern(Dish dish) {
+        int hash = spread(dish.hashCode());
+        return segmentFor(hash).intern(hash, dish.getName(), dish.isVegetarian(), dish.getCalories(), dish.getType(), dish);
+    }
+
+    public Dish intern(String name, boolean vegetarian, int calories, Dish.Type type) {
+        int hash = spread(Dish.hash(name, vegetarian, calories, type));
+        return segmentFor(hash).intern(hash, name, vegetarian, calories, type, null);
+    }
+
+    /**
+     * 池中的菜肴数，已经被回收但还没有移除的菜肴不计入
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 高位用来选段，低位用来选桶
+     */
+    private Segment segmentFor(int hash) {
+        return segments[hash >>> 28];
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 一段拉链法的哈希表，节点是菜肴的弱引用，被回收的节点通过引用队列找到并移除
+     */
+    private static final class Segment {
+
+        private final ReferenceQueue<Dish> queue = new ReferenceQueue<>();
+        private Node[] table = new Node[16];
+        private int count;
+
+        synchronized Dish intern(int hash, String name, boolean vegetarian, int calories, Dish.Type type, Dish dish) {
+            expunge();
+            int index = index(hash, table.length);
+            for (Node node = table[index]; node != null; node = node.next) {
+                if (node.hash == hash) {
+                    Dish candidate = node.get();
+                    if (candidate != null && candidate.getCalories() == calories && candidate.isVegetarian() == vegetarian
+                            && candidate.getType() == type && Objects.equals(candidate.getName(), name)) {
+                        return candidate;
+                    }
+                }
+            }
+            if (dish == null) {
+                dish = new Dish(name, vegetarian, calories, type);
+            }
+            table[index] = new Node(dish, hash, queue, table[index]);
+            if (++count > table.length - (table.length >>> 2)) {
+                resize();
+            }
+            return dish;
+        }
+
+        synchronized int size() {
+            expunge();
+            int size = 0;
+            for (Node head : table) {
+                for (Node node = head; node != null; node = node.next) {
+                    if (node.get() != null) {
+                        size++;
+                    }
+                }
+            }
+            return size;
+        }
+
+        /**
+         * 旧表中的节点之后仍可能进入引用队列，expunge 在新表中找不到它们，直接跳过
+         */
+        synchronized void clear() {
+            table = new Node[16];
+            count = 0;
+        }
+
+        private void expunge() {
+            for (Object ref; (ref = queue.poll()) != null; ) {
+                Node stale = (Node) ref;
+                int index = index(stale.hash, table.length);
+                Node previous = null;
+                for (Node node = table[index]; node != null; previous = node, node = node.next) {
+                    if (node == stale) {
+                        if (previous == null) {
+                            table[index] = node.next;
+                        } else {
+                            previous.next = node.next;
+                        }
+                        count--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        private void resize() {
+            Node[] resized = new Node[table.length << 1];
+            for (Node head : table) {
+                Node node = head;
+                while (node != null) {
+                    Node next = node.next;
+                    int index = index(node.hash, resized.length);
+                    node.next = resized[index];
+                    resized[index] = node;
+                    node = next;
+                }
+            }
+            table = resized;
+        }
+
+        private static int index(int hash, int length) {
+            return hash & (length - 1);
+        }
+    }
+
+    private static final class Node extends WeakReference<Dish> {
+
+        private final int hash;
+        private Node next;
+
+        Node(Dish dish, int hash, ReferenceQueue<Dish> queue, Node next) {
+            super(dish, queue);
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.stream.bean;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-10
+ * 列式存储的菜单：按列保存菜肴的各个属性（struct-of-arrays）
+ * calories 保存在 int[] 中，素食标记保存在位图中，类型保存为枚举序号，名称通过字典编码。
+ * 所有的筛选、求和、最值、计数、分组都直接在原始类型数组上完成，不需要创建 Dish 对象。
+ * 行号（row id）从 0 开始，筛选结果以升序的行号数组返回。
+ */
+public class DishTable {
+
+    private static final Dish.Type[] TYPES = Dish.Type.values();
+
+    private final int size;
+    private final int[] calories;
+    private final long[] vegetarian;
+    private final byte[] types;
+    private final int[] nameIds;
+    private final String[] names;
+
+    private DishTable(int size, int[] calories, long[] vegetarian, byte[] types, int[] nameIds, String[] names) {
+        this.size = size;
+        this.calories = calories;
+        this.vegetarian = vegetarian;
+        this.types = types;
+        this.nameIds = nameIds;
+        this.names = names;
+    }
+
+    /**
+     * 由菜肴集合创建列式菜单
+     */
+    public static DishTable of(Collection<Dish> menu) {
+        Builder builder = new Builder(menu.size());
+        for (Dish dish : menu) {
+            builder.add(dish);
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder(16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getName(int row) {
+        return names[nameIds[checkRow(row)]];
+    }
+
+    public int getNameId(int row) {
+        return nameIds[checkRow(row)];
+    }
+
+    public boolean isVegetarian(int row) {
+        checkRow(row);
+        return (vegetarian[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int getCalories(int row) {
+        return calories[checkRow(row)];
+    }
+
+    public Dish.Type getType(int row) {
+        return TYPES[types[checkRow(row)]];
+    }
+
+    public int getTypeOrdinal(int row) {
+        return types[checkRow(row)];
+    }
+
+    /**
+     * 名称字典，下标即 nameId
+     */
+    public String[] nameDictionary() {
+        return names.clone();
+    }
+
+    /**
+     * 只有在确实需要对象的时候才创建 Dish
+     */
+    public Dish toDish(int row) {
+        return new Dish(getName(row), isVegetarian(row), getCalories(row), getType(row));
+    }
+
+    // ---------------------------- 筛选 ----------------------------
+
+    /**
+     * 按热量筛选，返回满足条件的行号
+     */
+    public int[] filterCalories(IntPredicate predicate) {
+        int[] rows = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(calories[i])) {
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * 热量在 [from, to) 区间内的行号
+     */
+    public int[] filterCaloriesBetween(int from, int to) {
+        int[] rows = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int c = calories[i];
+            if (c >= from && c < to) {
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * 素食的行号，直接遍历位图中的置位
+     */
+    public int[] filterVegetarian() {
+        int[] rows = new int[countVegetarian()];
+        int n = 0;
+        for (int w = 0; w < vegetarian.length; w++) {
+            long word = vegetarian[w];
+            while (word != 0) {
+                rows[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return rows;
+    }
+
+    public int[] filterType(Dish.Type type) {
+        byte ordinal = (byte) type.ordinal();
+        int[] rows = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (types[i] == ordinal) {
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * 将行号按热量从低到高排序（热量相同时保持行号顺序）
+     * 把 热量 和 行号 打包成一个 long 再排序，避免使用 Comparator 和装箱
+     */
+    public int[] sortByCalories(int[] rows) {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = ((long) calories[checkRow(rows[i])] << 32) | (rows[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = (int) keys[i];
+        }
+        return sorted;
+    }
+
+    public String[] names(int[] rows) {
+        String[] result = new String[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = getName(rows[i]);
+        }
+        return result;
+    }
+
+    // ---------------------------- 聚合 ----------------------------
+
+    public long sumCalories() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += calories[i];
+        }
+        return sum;
+    }
+
+    public long sumCalories(int[] rows) {
+        long sum = 0;
+        for (int row : rows) {
+            sum += calories[checkRow(row)];
+        }
+        return sum;
+    }
+
+    public OptionalInt minCalories() {
+        if (size == 0) {
+            return OptionalInt.empty();
+        }
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            min = Math.min(min, calories[i]);
+        }
+        return OptionalInt.of(min);
+    }
+
+    public OptionalInt maxCalories() {
+        if (size == 0) {
+            return OptionalInt.empty();
+        }
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, calories[i]);
+        }
+        return OptionalInt.of(max);
+    }
+
+    public int countCalories(IntPredicate predicate) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(calories[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int countVegetarian() {
+        int count = 0;
+        for (long word : vegetarian) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 与 Collectors.summarizingInt(Dish::getCalories) 结果一致
+     */
+    public IntSummaryStatistics summarizeCalories() {
+        IntSummaryStatistics statistics = new IntSummaryStatistics();
+        for (int i = 0; i < size; i++) {
+            statistics.accept(calories[i]);
+        }
+        return statistics;
+    }
+
+    // ---------------------------- 分组 ----------------------------
+
+    /**
+     * 按类型计数，下标为 Dish.Type 的序号
+     */
+    public long[] countByTypeOrdinal() {
+        long[] counts = new long[TYPES.length];
+        for (int i = 0; i < size; i++) {
+            counts[types[i]]++;
+        }
+        return counts;
+    }
+
+    /**
+     * 按类型求热量和，下标为 Dish.Type 的序号
+     */
+    public long[] sumCaloriesByTypeOrdinal() {
+        long[] sums = new long[TYPES.length];
+        for (int i = 0; i < size; i++) {
+            sums[types[i]] += calories[i];
+        }
+        return sums;
+    }
+
+    /**
+     * 与 groupingBy(Dish::getType, counting()) 结果一致（没有菜肴的类型不出现在结果中）
+     */
+    public Map<Dish.Type, Long> countByType() {
+        long[] counts = countByTypeOrdinal();
+        Map<Dish.Type, Long> result = new EnumMap<>(Dish.Type.class);
+        for (int t = 0; t < counts.length; t++) {
+            if (counts[t] > 0) {
+                result.put(TYPES[t], counts[t]);
+            }
+        }
+        return result;
+    }
+
+    public Map<Dish.Type, Long> sumCaloriesByType() {
+        long[] counts = countByTypeOrdinal();
+        long[] sums = sumCaloriesByTypeOrdinal();
+        Map<Dish.Type, Long> result = new EnumMap<>(Dish.Type.class);
+        for (int t = 0; t < sums.length; t++) {
+            if (counts[t] > 0) {
+                result.put(TYPES[t], sums[t]);
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------- 并行 ----------------------------
+
+    /**
+     * 行号的 Spliterator，按行号区间对半拆分，适合 parallel() 使用
+     */
+    public Spliterator.OfInt rowSpliterator() {
+        return new DishTableTasks.RowSpliterator(0, size, DishTableTasks.leafSize(size));
+    }
+
+    /**
+     * 行号组成的 IntStream，例如 table.rows().parallel().filter(r -> table.getCalories(r) > 300)
+     */
+    public IntStream rows() {
+        return StreamSupport.intStream(rowSpliterator(), false);
+    }
+
+    /**
+     * 按行创建 Dish 的流，只在确实需要对象的时候使用
+     */
+    public Stream<Dish> dishes() {
+        return rows().mapToObj(this::toDish);
+    }
+
+    /**
+     * 使用 fork-join 并行计算热量总和，对应 test12
+     */
+    public long parallelSumCalories() {
+        return DishTableTasks.invoke(size, 1, (from, to, acc) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += calories[i];
+            }
+            acc[0] += sum;
+        })[0];
+    }
+
+    /**
+     * 并行计算满足热量条件的菜肴个数
+     */
+    public long parallelCountCalories(IntPredicate predicate) {
+        return DishTableTasks.invoke(size, 1, (from, to, acc) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(calories[i])) {
+                    count++;
+                }
+            }
+            acc[0] += count;
+        })[0];
+    }
+
+    /**
+     * 并行计算满足热量条件的菜肴的热量和（filter + map + sum）
+     */
+    public long parallelSumCaloriesWhere(IntPredicate predicate) {
+        return DishTableTasks.invoke(size, 1, (from, to, acc) -> {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                int c = calories[i];
+                if (predicate.test(c)) {
+                    sum += c;
+                }
+            }
+            acc[0] += sum;
+        })[0];
+    }
+
+    /**
+     * 并行按类型计数，下标为 Dish.Type 的序号，对应 test20、test23
+     */
+    public long[] parallelCountByTypeOrdinal() {
+        return DishTableTasks.invoke(size, TYPES.length, (from, to, acc) -> {
+            for (int i = from; i < to; i++) {
+                acc[types[i]]++;
+            }
+        });
+    }
+
+    /**
+     * 并行按类型求热量和，下标为 Dish.Type 的序号，对应 test25
+     */
+    public long[] parallelSumCaloriesByTypeOrdinal() {
+        return DishTableTasks.invoke(size, TYPES.length, (from, to, acc) -> {
+            for (int i = from; i < to; i++) {
+                acc[types[i]] += calories[i];
+            }
+        });
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+        }
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "DishTable{" +
+                "size=" + size +
+                ", names=" + names.length +
+                '}';
+    }
+
+    /**
+     * 逐行追加数据，最后生成不可变的 DishTable
+     */
+    public static class Builder {
+
+        private int size;
+        private int[] calories;
+        private long[] vegetarian;
+        private byte[] types;
+        private int[] nameIds;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private String[] names = new String[16];
+
+        private Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            this.calories = new int[capacity];
+            this.vegetarian = new long[(capacity + 63) >>> 6];
+            this.types = new byte[capacity];
+            this.nameIds = new int[capacity];
+        }
+
+        public Builder add(Dish dish) {
+            return add(dish.getName(), dish.isVegetarian(), dish.getCalories(), dish.getType());
+        }
+
+        public Builder add(String name, boolean vegetarian, int calories, Dish.Type type) {
+            ensureCapacity(size + 1);
+            this.calories[size] = calories;
+            if (vegetarian) {
+                this.vegetarian[size >>> 6] |= 1L << size;
+            }
+            this.types[size] = (byte) type.ordinal();
+            this.nameIds[size] = nameId(name);
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public DishTable build() {
+            return new DishTable(size,
+                    Arrays.copyOf(calories, size),
+                    Arrays.copyOf(vegetarian, (size + 63) >>> 6),
+                    Arrays.copyOf(types, size),
+                    Arrays.copyOf(nameIds, size),
+                    Arrays.copyOf(names, dictionary.size()));
+        }
+
+        private int nameId(String name) {
+            Integer id = dictionary.get(name);
+            if (id == null) {
+                id = dictionary.size();
+                if (id == names.length) {
+                    names = Arrays.copyOf(names, id << 1);
+                }
+                names[id] = name;
+                dictionary.put(name, id);
+            }
+            return id;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= calories.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, calories.length + (calories.length >> 1));
+            calories = Arrays.copyOf(calories, newCapacity);
+            vegetarian = Arrays.copyOf(vegetarian, (newCapacity + 63) >>> 6);
+            types = Arrays.copyOf(types, newCapacity);
+            nameIds = Arrays.copyOf(nameIds, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.stream.bean;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-17
+ * DishTable 的并行执行支持
+ * RowSpliterator：按行号区间对半拆分的 Spliterator，大小精确（SIZED、SUBSIZED），拆分出来的两半行数相差不超过 1。
+ * RangeTask：fork-join 任务，按行号区间递归拆分，叶子任务直接在原始类型数组上循环，结果是按位相加的 long[]，
+ * 求和、计数、按类型分组都可以用这种形式表达。
+ */
+final class DishTableTasks {
+
+    /**
+     * 叶子任务的最小行数，小于这个数时拆分的调度开销会超过收益
+     */
+    static final int MIN_LEAF_SIZE = 1 << 13;
+
+    private DishTableTasks() {
+    }
+
+    /**
+     * 根据数据量和并行度计算叶子大小：每个线程大约分到 4 个叶子，方便工作窃取做负载均衡
+     */
+    static int leafSize(int size) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(MIN_LEAF_SIZE, size / (parallelism << 2));
+    }
+
+    /**
+     * 在 [from, to) 区间内累加结果到 acc
+     */
+    @FunctionalInterface
+    interface RangeKernel {
+        void accumulate(int from, int to, long[] acc);
+    }
+
+    static long[] invoke(int size, int width, RangeKernel kernel) {
+        return ForkJoinPool.commonPool().invoke(new RangeTask(kernel, width, 0, size, leafSize(size)));
+    }
+
+    private static final class RangeTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeKernel kernel;
+        private final int width;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        RangeTask(RangeKernel kernel, int width, int from, int to, int leafSize) {
+            this.kernel = kernel;
+            this.width = width;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= leafSize) {
+                long[] acc = new long[width];
+                kernel.accumulate(from, to, acc);
+                return acc;
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(kernel, width, from, mid, leafSize);
+            RangeTask right = new RangeTask(kernel, width, mid, to, leafSize);
+            left.fork();
+            long[] result = right.compute();
+            long[] other = left.join();
+            for (int i = 0; i < width; i++) {
+                result[i] += other[i];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 行号区间 [from, to) 上的 Spliterator
+     */
+    static final class RowSpliterator implements Spliterator.OfInt {
+
+        private int from;
+        private final int to;
+        private final int leafSize;
+
+        RowSpliterator(int from, int to, int leafSize) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            int remaining = to - from;
+            if (remaining <= leafSize) {
+                return null;
+            }
+            int mid = from + (remaining >>> 1);
+            RowSpliterator prefix = new RowSpliterator(from, mid, leafSize);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (from < to) {
+                action.accept(from++);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            int i = from;
+            int end = to;
+            from = end;
+            for (; i < end; i++) {
+                action.accept(i);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL | DISTINCT | SORTED;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.stream.bean;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-15
+ * 可变的菜单，增删改菜肴时同步维护热量统计
+ * 总体、按 Dish.Type、按 CaloricLevel 分别维护 个数、总和、最值。
+ * 读取统计结果为 O(1)，不需要像 summarizingInt 那样重新遍历整个菜单。
+ * 每组热量额外用一个有序多重集合保存，删除当前最值时可以在 O(log n) 内找到新的最值。
+ * 所有方法都是线程安全的，读取返回的是不可变的快照。
+ */
+public class LiveMenu {
+
+    private final Map<Dish, Integer> dishes = new HashMap<>();
+    private final Accumulator total = new Accumulator();
+    private final Map<Dish.Type, Accumulator> byType = new EnumMap<>(Dish.Type.class);
+    private final Map<CaloricLevel, Accumulator> byLevel = new EnumMap<>(CaloricLevel.class);
+
+    public LiveMenu() {
+        for (Dish.Type type : Dish.Type.values()) {
+            byType.put(type, new Accumulator());
+        }
+        for (CaloricLevel level : CaloricLevel.values()) {
+            byLevel.put(level, new Accumulator());
+        }
+    }
+
+    public LiveMenu(Collection<Dish> menu) {
+        this();
+        for (Dish dish : menu) {
+            add(dish);
+        }
+    }
+
+    public synchronized void add(Dish dish) {
+        dishes.merge(dish, 1, Integer::sum);
+        int calories = dish.getCalories();
+        total.add(calories);
+        byType.get(dish.getType()).add(calories);
+        byLevel.get(dish.getCaloriecLevel()).add(calories);
+    }
+
+    /**
+     * 删除一道菜，菜单中不存在时返回 false
+     */
+    public synchronized boolean remove(Dish dish) {
+        Integer count = dishes.get(dish);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            dishes.remove(dish);
+        } else {
+            dishes.put(dish, count - 1);
+        }
+        int calories = dish.getCalories();
+        total.remove(calories);
+        byType.get(dish.getType()).remove(calories);
+        byLevel.get(dish.getCaloriecLevel()).remove(calories);
+        return true;
+    }
+
+    /**
+     * 用 newDish 替换 oldDish，oldDish 不存在时不做修改并返回 false
+     */
+    public synchronized boolean update(Dish oldDish, Dish newDish) {
+        if (!remove(oldDish)) {
+            return false;
+        }
+        add(newDish);
+        return true;
+    }
+
+    public synchronized int size() {
+        return (int) total.count;
+    }
+
+    public synchronized boolean contains(Dish dish) {
+        return dishes.containsKey(dish);
+    }
+
+    public synchronized List<Dish> toList() {
+        List<Dish> result = new ArrayList<>(size());
+        for (Map.Entry<Dish, Integer> entry : dishes.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 整个菜单的热量统计，对应 test16、test17、test18
+     */
+    public synchronized Statistics statistics() {
+        return total.snapshot();
+    }
+
+    public synchronized Statistics statistics(Dish.Type type) {
+        return byType.get(type).snapshot();
+    }
+
+    public synchronized Statistics statistics(CaloricLevel level) {
+        return byLevel.get(level).snapshot();
+    }
+
+    public synchronized Map<Dish.Type, Statistics> statisticsByType() {
+        Map<Dish.Type, Statistics> result = new EnumMap<>(Dish.Type.class);
+        byType.forEach((type, accumulator) -> result.put(type, accumulator.snapshot()));
+        return result;
+    }
+
+    public synchronized Map<CaloricLevel, Statistics> statisticsByCaloricLevel() {
+        Map<CaloricLevel, Statistics> result = new EnumMap<>(CaloricLevel.class);
+        byLevel.forEach((level, accumulator) -> result.put(level, accumulator.snapshot()));
+        return result;
+    }
+
+    /**
+     * 一组热量的增量统计
+     */
+    private static final class Accumulator {
+
+        private long count;
+        private long sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        /**
+         * 热量 -> 出现次数
+         */
+        private final TreeMap<Integer, Integer> calories = new TreeMap<>();
+
+        void add(int value) {
+            count++;
+            sum += value;
+            calories.merge(value, 1, Integer::sum);
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        void remove(int value) {
+            count--;
+            sum -= value;
+            Integer n = calories.get(value);
+            if (n == 1) {
+                calories.remove(value);
+                if (calories.isEmpty()) {
+                    min = Integer.MAX_VALUE;
+                    max = Integer.MIN_VALUE;
+                } else {
+                    if (value == min) {
+                        min = calories.firstKey();
+                    }
+                    if (value == max) {
+                        max = calories.lastKey();
+                    }
+                }
+            } else {
+                calories.put(value, n - 1);
+            }
+        }
+
+        Statistics snapshot() {
+            return new Statistics(count, sum, min, max);
+        }
+    }
+
+    /**
+     * 统计结果的快照，各项的取值与 IntSummaryStatistics 一致：
+     * 没有菜肴时 min 为 Integer.MAX_VALUE，max 为 Integer.MIN_VALUE，average 为 0
+     */
+    public static final class Statistics {
+
+        private final long count;
+        private final long sum;
+        private final int min;
+        private final int max;
+
+        private Statistics(long count, long sum, int min, int max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public double getAverage() {
+            return count > 0 ? (double) sum / count : 0.0d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s{count=%d, sum=%d, min=%d, average=%f, max=%d}",
+                    this.getClass().getSimpleName(), count, sum, min, getAverage(), max);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.stream.bean;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-21
+ * 倒排列表：升序的行号数组，只能在末尾追加
+ * 行号按追加顺序递增，所以列表天然有序，求交集时可以直接归并。
+ */
+final class Postings {
+
+    static final int[] EMPTY = new int[0];
+
+    private int[] rows = new int[8];
+    private int size;
+
+    void add(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size << 1);
+        }
+        rows[size++] = row;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * 当前的行号，不复制数组；之后追加的行不在流中
+     */
+    IntStream stream() {
+        return Arrays.stream(rows, 0, size);
+    }
+
+    boolean contains(int row) {
+        return Arrays.binarySearch(rows, 0, size, row) >= 0;
+    }
+
+    /**
+     * 与升序数组 other 求交集；other 很短时对本列表做二分查找，否则两路归并
+     */
+    int[] intersect(int[] other) {
+        int[] result = new int[Math.min(size, other.length)];
+        int n = 0;
+        if ((long) other.length * 32 < size) {
+            int from = 0;
+            for (int row : other) {
+                int i = Arrays.binarySearch(rows, from, size, row);
+                if (i >= 0) {
+                    result[n++] = row;
+                    from = i + 1;
+                } else {
+                    from = -i - 1;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.length) {
+                int a = rows[i];
+                int b = other[j];
+                if (a == b) {
+                    result[n++] = a;
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
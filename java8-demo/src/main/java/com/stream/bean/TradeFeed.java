@@ -0,0 +1,184 @@
+package com.stream.bean;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-23
+ * 多线程并发写入的交易流
+ * 追加不使用全局锁：写线程通过 AtomicLong 领取一个位置，再写入按块分配的数组，块在第一次使用时 CAS 创建。
+ * 每个交易员、每个城市维护 个数、交易额之和、最大交易额，使用 LongAdder / LongAccumulator 分段累加，
+ * 多个写线程更新同一个交易员时也不会在同一个变量上竞争；读线程随时可以读取，不会阻塞写线程。
+ * 读取到的统计值是弱一致的：并发写入期间可能还没有包含正在写入的交易。
+ */
+public class TradeFeed {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicReferenceArray<AtomicReferenceArray<Transaction>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final ConcurrentMap<Trader, Aggregate> byTrader = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Aggregate> byCity = new ConcurrentHashMap<>();
+    private final Aggregate total = new Aggregate();
+
+    /**
+     * 追加一笔交易，返回其序号，可以被任意多个线程同时调用
+     */
+    public long append(Transaction transaction) {
+        long index = cursor.getAndIncrement();
+        int chunkIndex = (int) (index >>> CHUNK_BITS);
+        if (chunkIndex >= MAX_CHUNKS) {
+            throw new IllegalStateException("trade feed is full: " + index);
+        }
+        chunk(chunkIndex).lazySet((int) (index & (CHUNK_SIZE - 1)), transaction);
+
+        int value = transaction.getValue();
+        total.accept(value);
+        aggregate(byTrader, transaction.getTrader()).accept(value);
+        aggregate(byCity, transaction.getTrader().getCity()).accept(value);
+        return index;
+    }
+
+    /**
+     * 已领取的位置数，其中个别位置可能还在写入中
+     */
+    public long size() {
+        return Math.min(cursor.get(), (long) MAX_CHUNKS << CHUNK_BITS);
+    }
+
+    /**
+     * 按序号读取交易，该位置还没有写入完成时返回 null
+     */
+    public Transaction get(long index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        AtomicReferenceArray<Transaction> chunk = chunks.get((int) (index >>> CHUNK_BITS));
+        return chunk == null ? null : chunk.get((int) (index & (CHUNK_SIZE - 1)));
+    }
+
+    /**
+     * 按序号顺序遍历已经写入完成的交易
+     */
+    public void forEach(Consumer<? super Transaction> action) {
+        long size = size();
+        for (long i = 0; i < size; i++) {
+            Transaction transaction = get(i);
+            if (transaction != null) {
+                action.accept(transaction);
+            }
+        }
+    }
+
+    public TradeStats stats() {
+        return total.snapshot();
+    }
+
+    public TradeStats stats(Trader trader) {
+        Aggregate aggregate = byTrader.get(trader);
+        return aggregate == null ? TradeStats.EMPTY : aggregate.snapshot();
+    }
+
+    public TradeStats stats(String city) {
+        Aggregate aggregate = byCity.get(city);
+        return aggregate == null ? TradeStats.EMPTY : aggregate.snapshot();
+    }
+
+    public Map<Trader, TradeStats> statsByTrader() {
+        Map<Trader, TradeStats> result = new HashMap<>();
+        byTrader.forEach((trader, aggregate) -> result.put(trader, aggregate.snapshot()));
+        return result;
+    }
+
+    public Map<String, TradeStats> statsByCity() {
+        Map<String, TradeStats> result = new HashMap<>();
+        byCity.forEach((city, aggregate) -> result.put(city, aggregate.snapshot()));
+        return result;
+    }
+
+    private AtomicReferenceArray<Transaction> chunk(int chunkIndex) {
+        AtomicReferenceArray<Transaction> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    /**
+     * 先无锁读取，只有第一次出现的键才进入 computeIfAbsent
+     */
+    private static <K> Aggregate aggregate(ConcurrentMap<K, Aggregate> map, K key) {
+        Aggregate aggregate = map.get(key);
+        return aggregate != null ? aggregate : map.computeIfAbsent(key, k -> new Aggregate());
+    }
+
+    /**
+     * 分段累加的统计
+     */
+    private static final class Aggregate {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, Integer.MIN_VALUE);
+
+        void accept(int value) {
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        TradeStats snapshot() {
+            return new TradeStats(count.sum(), sum.sum(), (int) max.get());
+        }
+    }
+
+    /**
+     * 统计快照，没有交易时 max 为 Integer.MIN_VALUE
+     */
+    public static final class TradeStats {
+
+        static final TradeStats EMPTY = new TradeStats(0, 0, Integer.MIN_VALUE);
+
+        private final long count;
+        private final long sum;
+        private final int max;
+
+        TradeStats(long count, long sum, int max) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "TradeStats{" +
+                    "count=" + count +
+                    ", sum=" + sum +
+                    ", max=" + max +
+                    '}';
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.stream.bean;
 
+import java.util.Objects;
+
 /**
  * @author zyting
  * @sinne 2020-06-29
@@ -24,6 +26,20 @@ public class Trader {
         return city;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Trader trader = (Trader) o;
+        return Objects.equals(name, trader.name) &&
+                Objects.equals(city, trader.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(name) + Objects.hashCode(city);
+    }
+
     @Override
     public String toString() {
         return "Trader: " + this.name + " in " + this.city;
@@ -0,0 +1,171 @@
+package com.stream.bean;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-20
+ * 交易员注册表：为每个不同的交易员分配从 0 开始的连续 id，姓名和城市也分别做字典编码
+ * 交易只需要保存交易员 id，城市、姓名的比较和去重都变成 int 比较或位图操作。
+ * id 按第一次注册的顺序分配，因此按 id 遍历位图的顺序与流中 distinct() 的顺序一致。
+ * 线程安全。
+ */
+public class TraderRegistry {
+
+    private final Map<Trader, Integer> traderIds = new HashMap<>();
+    private final Dictionary names = new Dictionary();
+    private final Dictionary cities = new Dictionary();
+    private Trader[] traders = new Trader[16];
+    private int[] nameIds = new int[16];
+    private int[] cityIds = new int[16];
+    private int size;
+
+    /**
+     * 注册交易员并返回其 id，已经注册过的交易员返回原来的 id
+     */
+    public synchronized int register(Trader trader) {
+        Integer id = traderIds.get(trader);
+        if (id != null) {
+            return id;
+        }
+        if (size == traders.length) {
+            int newLength = size << 1;
+            traders = Arrays.copyOf(traders, newLength);
+            nameIds = Arrays.copyOf(nameIds, newLength);
+            cityIds = Arrays.copyOf(cityIds, newLength);
+        }
+        id = size++;
+        traders[id] = trader;
+        nameIds[id] = names.encode(trader.getName());
+        cityIds[id] = cities.encode(trader.getCity());
+        traderIds.put(trader, id);
+        return id;
+    }
+
+    public int register(String name, String city) {
+        return register(new Trader(name, city));
+    }
+
+    /**
+     * 交易员的 id，未注册时返回 -1
+     */
+    public synchronized int idOf(Trader trader) {
+        Integer id = traderIds.get(trader);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized Trader trader(int traderId) {
+        return traders[checkId(traderId)];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int nameIdOf(int traderId) {
+        return nameIds[checkId(traderId)];
+    }
+
+    public synchronized int cityIdOf(int traderId) {
+        return cityIds[checkId(traderId)];
+    }
+
+    /**
+     * 城市的 id，城市不存在时返回 -1
+     */
+    public synchronized int cityId(String city) {
+        return cities.idOf(city);
+    }
+
+    public synchronized String city(int cityId) {
+        return cities.value(cityId);
+    }
+
+    public synchronized int cityCount() {
+        return cities.size();
+    }
+
+    public synchronized String name(int nameId) {
+        return names.value(nameId);
+    }
+
+    public synchronized int nameCount() {
+        return names.size();
+    }
+
+    /**
+     * 某个城市的所有交易员 id
+     */
+    public synchronized BitSet tradersInCity(String city) {
+        BitSet result = new BitSet(size);
+        int cityId = cities.idOf(city);
+        if (cityId < 0) {
+            return result;
+        }
+        for (int id = 0; id < size; id++) {
+            if (cityIds[id] == cityId) {
+                result.set(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一组交易员所在的城市 id
+     */
+    public synchronized BitSet citiesOf(BitSet traderIds) {
+        BitSet result = new BitSet(cities.size());
+        for (int id = traderIds.nextSetBit(0); id >= 0; id = traderIds.nextSetBit(id + 1)) {
+            result.set(cityIds[checkId(id)]);
+        }
+        return result;
+    }
+
+    private int checkId(int traderId) {
+        if (traderId < 0 || traderId >= size) {
+            throw new IndexOutOfBoundsException("trader id: " + traderId + ", size: " + size);
+        }
+        return traderId;
+    }
+
+    /**
+     * 字符串字典，id 按第一次出现的顺序分配
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private String[] values = new String[16];
+
+        int encode(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                if (id == values.length) {
+                    values = Arrays.copyOf(values, id << 1);
+                }
+                values[id] = value;
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        int idOf(String value) {
+            Integer id = ids.get(value);
+            return id == null ? -1 : id;
+        }
+
+        String value(int id) {
+            if (id < 0 || id >= ids.size()) {
+                throw new IndexOutOfBoundsException("id: " + id + ", size: " + ids.size());
+            }
+            return values[id];
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+}
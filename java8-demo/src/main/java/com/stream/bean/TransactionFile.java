@@ -0,0 +1,430 @@
+package com.stream.bean;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-25
+ * 内存映射的交易账本文件：交易保存在堆外，每笔交易是定长 12 字节的记录 (交易员id, 年份, 交易额)
+ * 文件结构：16 字节的文件头 (魔数, 记录长度, 记录数)，之后是连续的记录，按 REGION_RECORDS 条一段分段映射。
+ * 交易员字典很小，保存在同目录下的 &lt;文件名&gt;.traders 中，每行 "姓名\t城市"，行号就是交易员 id。
+ * 重新打开时只读取文件头和交易员字典，记录本身按需由操作系统换页，不需要重新加载。
+ * 扫描接口直接在映射的字节上读取 int，不创建 Transaction 对象，对应 TransactionTest 中的查询。
+ * 文件头中的记录数在记录写完之后才更新，进程异常退出时最多丢失最后一条未提交的记录。
+ * 最多 Integer.MAX_VALUE 条记录；非线程安全。
+ */
+public class TransactionFile implements Closeable {
+
+    private static final int MAGIC = 0x54584C31;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 12;
+    private static final int COUNT_OFFSET = 8;
+    /**
+     * 每段映射的记录数，12M 字节
+     */
+    private static final int REGION_RECORDS = 1 << 20;
+
+    /**
+     * 一条记录
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(int row, int traderId, int year, int value);
+    }
+
+    private final FileChannel channel;
+    private final BufferedWriter traderWriter;
+    private final TraderRegistry registry;
+    private final int regionRecords;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private int size;
+
+    private TransactionFile(FileChannel channel, BufferedWriter traderWriter, TraderRegistry registry,
+                            int regionRecords, MappedByteBuffer header, int size) throws IOException {
+        this.channel = channel;
+        this.traderWriter = traderWriter;
+        this.registry = registry;
+        this.regionRecords = regionRecords;
+        this.header = header;
+        this.size = size;
+        while ((long) regions.size() * regionRecords < size) {
+            mapRegion();
+        }
+    }
+
+    /**
+     * 打开账本文件，文件不存在时创建
+     */
+    public static TransactionFile open(Path file) throws IOException {
+        return open(file, REGION_RECORDS);
+    }
+
+    static TransactionFile open(Path file, int regionRecords) throws IOException {
+        Path traderFile = traderFile(file);
+        TraderRegistry registry = new TraderRegistry();
+        if (Files.exists(traderFile)) {
+            for (String line : Files.readAllLines(traderFile, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    throw new IllegalArgumentException("malformed trader line: " + line);
+                }
+                registry.register(line.substring(0, tab), line.substring(tab + 1));
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            int size;
+            if (created) {
+                header.putInt(0, MAGIC);
+                header.putInt(4, RECORD_SIZE);
+                header.putLong(COUNT_OFFSET, 0);
+                size = 0;
+            } else {
+                if (header.getInt(0) != MAGIC || header.getInt(4) != RECORD_SIZE) {
+                    throw new IllegalArgumentException("not a transaction file: " + file);
+                }
+                long count = header.getLong(COUNT_OFFSET);
+                if (count < 0 || count > Integer.MAX_VALUE
+                        || HEADER_SIZE + count * RECORD_SIZE > channel.size()) {
+                    throw new IllegalArgumentException("corrupted record count: " + count);
+                }
+                size = (int) count;
+            }
+            BufferedWriter traderWriter = Files.newBufferedWriter(traderFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return new TransactionFile(channel, traderWriter, registry, regionRecords, header, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static Path traderFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".traders");
+    }
+
+    /**
+     * 追加一笔交易，返回行号；新的交易员先写入交易员字典
+     */
+    public int append(Transaction transaction) throws IOException {
+        return append(register(transaction.getTrader()), transaction.getYear(), transaction.getValue());
+    }
+
+    public int append(int traderId, int year, int value) throws IOException {
+        if (traderId < 0 || traderId >= registry.size()) {
+            throw new IllegalArgumentException("unknown trader id: " + traderId);
+        }
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("transaction file is full");
+        }
+        if (size == (long) regions.size() * regionRecords) {
+            mapRegion();
+        }
+        MappedByteBuffer region = regions.get(size / regionRecords);
+        int offset = (size % regionRecords) * RECORD_SIZE;
+        region.putInt(offset, traderId);
+        region.putInt(offset + 4, year);
+        region.putInt(offset + 8, value);
+        header.putLong(COUNT_OFFSET, size + 1);
+        return size++;
+    }
+
+    /**
+     * 注册交易员，返回其 id
+     */
+    public int register(Trader trader) throws IOException {
+        int id = registry.idOf(trader);
+        if (id >= 0) {
+            return id;
+        }
+        String name = trader.getName();
+        String city = trader.getCity();
+        if (name.indexOf('\t') >= 0 || name.indexOf('\n') >= 0 || city.indexOf('\t') >= 0 || city.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("trader name and city must not contain tabs or line breaks: " + trader);
+        }
+        traderWriter.write(name);
+        traderWriter.write('\t');
+        traderWriter.write(city);
+        traderWriter.newLine();
+        traderWriter.flush();
+        return registry.register(trader);
+    }
+
+    /**
+     * 将映射的内容刷到磁盘
+     */
+    public void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            traderWriter.close();
+        } finally {
+            channel.close();
+        }
+    }
+
+    public TraderRegistry registry() {
+        return registry;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTraderId(int row) {
+        checkRow(row);
+        return regions.get(row / regionRecords).getInt((row % regionRecords) * RECORD_SIZE);
+    }
+
+    public int getYear(int row) {
+        checkRow(row);
+        return regions.get(row / regionRecords).getInt((row % regionRecords) * RECORD_SIZE + 4);
+    }
+
+    public int getValue(int row) {
+        checkRow(row);
+        return regions.get(row / regionRecords).getInt((row % regionRecords) * RECORD_SIZE + 8);
+    }
+
+    /**
+     * 只有在确实需要对象的时候才创建 Transaction
+     */
+    public Transaction toTransaction(int row) {
+        return new Transaction(registry.trader(getTraderId(row)), getYear(row), getValue(row));
+    }
+
+    /**
+     * 按行号顺序遍历所有记录
+     */
+    public void forEach(RecordHandler handler) {
+        int row = 0;
+        for (MappedByteBuffer region : regions) {
+            int end = Math.min(size - row, regionRecords) * RECORD_SIZE;
+            for (int offset = 0; offset < end; offset += RECORD_SIZE) {
+                handler.accept(row++, region.getInt(offset), region.getInt(offset + 4), region.getInt(offset + 8));
+            }
+        }
+    }
+
+    // ---------------------------- 过滤、排序 ----------------------------
+
+    /**
+     * 某一年的所有行，对应 TransactionTest.test1
+     */
+    public int[] rowsOfYear(int year) {
+        Postings rows = new Postings();
+        forEach((row, traderId, y, value) -> {
+            if (y == year) {
+                rows.add(row);
+            }
+        });
+        return rows.toArray();
+    }
+
+    /**
+     * 某个城市的交易员的所有行，对应 TransactionTest.test10
+     */
+    public int[] rowsInCity(String city) {
+        BitSet traders = registry.tradersInCity(city);
+        Postings rows = new Postings();
+        if (!traders.isEmpty()) {
+            forEach((row, traderId, year, value) -> {
+                if (traders.get(traderId)) {
+                    rows.add(row);
+                }
+            });
+        }
+        return rows.toArray();
+    }
+
+    /**
+     * 某个城市的交易员的所有交易额，对应 TransactionTest.test11
+     */
+    public int[] valuesInCity(String city) {
+        int[] rows = rowsInCity(city);
+        int[] values = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            values[i] = getValue(rows[i]);
+        }
+        return values;
+    }
+
+    /**
+     * 按交易额升序排列行号，交易额相同时保持原来的顺序
+     * 交易额与下标打包成 long 排序，不需要装箱
+     */
+    public int[] sortByValue(int[] rows) {
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = ((long) getValue(rows[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] result = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = rows[(int) keys[i]];
+        }
+        return result;
+    }
+
+    // ---------------------------- 去重 ----------------------------
+
+    /**
+     * 出现过的交易员 id
+     */
+    public BitSet distinctTraderIds() {
+        BitSet result = new BitSet(registry.size());
+        forEach((row, traderId, year, value) -> result.set(traderId));
+        return result;
+    }
+
+    /**
+     * 交易员都在哪些不同的城市工作过，对应 TransactionTest.test2、test3
+     */
+    public List<String> distinctCities() {
+        BitSet cityIds = registry.citiesOf(distinctTraderIds());
+        List<String> result = new ArrayList<>(cityIds.cardinality());
+        for (int id = cityIds.nextSetBit(0); id >= 0; id = cityIds.nextSetBit(id + 1)) {
+            result.add(registry.city(id));
+        }
+        return result;
+    }
+
+    /**
+     * 来自某个城市且有交易的交易员，按姓名排序，对应 TransactionTest.test4、test5
+     */
+    public List<Trader> tradersInCity(String city) {
+        BitSet traderIds = distinctTraderIds();
+        traderIds.and(registry.tradersInCity(city));
+        List<Trader> result = new ArrayList<>(traderIds.cardinality());
+        for (int id = traderIds.nextSetBit(0); id >= 0; id = traderIds.nextSetBit(id + 1)) {
+            result.add(registry.trader(id));
+        }
+        result.sort(Comparator.comparing(Trader::getName));
+        return result;
+    }
+
+    // ---------------------------- 聚合 ----------------------------
+
+    /**
+     * 是否有交易员在某个城市工作，对应 TransactionTest.test8
+     */
+    public boolean anyInCity(String city) {
+        BitSet traders = registry.tradersInCity(city);
+        if (traders.isEmpty()) {
+            return false;
+        }
+        for (int row = 0; row < size; row++) {
+            if (traders.get(getTraderId(row))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 最高的交易额，对应 TransactionTest.test12、test15
+     */
+    public OptionalInt maxValue() {
+        if (size == 0) {
+            return OptionalInt.empty();
+        }
+        int max = Integer.MIN_VALUE;
+        int row = 0;
+        for (MappedByteBuffer region : regions) {
+            int end = Math.min(size - row, regionRecords) * RECORD_SIZE;
+            for (int offset = 8; offset < end; offset += RECORD_SIZE) {
+                max = Math.max(max, region.getInt(offset));
+            }
+            row += regionRecords;
+        }
+        return OptionalInt.of(max);
+    }
+
+    /**
+     * 交易额最小的行，没有交易时返回 -1，对应 TransactionTest.test13、test14
+     */
+    public int minValueRow() {
+        int minRow = -1;
+        int min = Integer.MAX_VALUE;
+        int row = 0;
+        for (MappedByteBuffer region : regions) {
+            int end = Math.min(size - row, regionRecords) * RECORD_SIZE;
+            for (int offset = 8; offset < end; offset += RECORD_SIZE, row++) {
+                int value = region.getInt(offset);
+                if (minRow < 0 || value < min) {
+                    min = value;
+                    minRow = row;
+                }
+            }
+        }
+        return minRow;
+    }
+
+    public long sumValue() {
+        long sum = 0;
+        int row = 0;
+        for (MappedByteBuffer region : regions) {
+            int end = Math.min(size - row, regionRecords) * RECORD_SIZE;
+            for (int offset = 8; offset < end; offset += RECORD_SIZE) {
+                sum += region.getInt(offset);
+            }
+            row += regionRecords;
+        }
+        return sum;
+    }
+
+    /**
+     * 某一年的交易额之和
+     */
+    public long sumValue(int year) {
+        long sum = 0;
+        int row = 0;
+        for (MappedByteBuffer region : regions) {
+            int end = Math.min(size - row, regionRecords) * RECORD_SIZE;
+            for (int offset = 4; offset < end; offset += RECORD_SIZE) {
+                if (region.getInt(offset) == year) {
+                    sum += region.getInt(offset + 4);
+                }
+            }
+            row += regionRecords;
+        }
+        return sum;
+    }
+
+    // ---------------------------- 内部 ----------------------------
+
+    private void mapRegion() throws IOException {
+        long position = HEADER_SIZE + (long) regions.size() * regionRecords * RECORD_SIZE;
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) regionRecords * RECORD_SIZE));
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.stream.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-22
+ * 按年份分段的不可变交易账本
+ * 交易按年份分组，每组再按 SEGMENT_SIZE 切分成不可变的段，每段记录统计信息（zone map）：
+ * 个数、交易额的和、最小值、最大值、交易员 id 的范围，以及最小/最大交易额所在的行。
+ * 最大交易额、某年最小的交易、是否有超过某个值的交易 这类查询直接由统计信息得到，
+ * 范围查询先用统计信息跳过不可能命中的段，再扫描剩余段。
+ */
+public class TransactionLedger {
+
+    /**
+     * 每段最多的交易数
+     */
+    static final int SEGMENT_SIZE = 1 << 16;
+
+    private final TraderRegistry registry;
+    /**
+     * 按年份升序排列
+     */
+    private final List<Segment> segments;
+
+    private TransactionLedger(TraderRegistry registry, List<Segment> segments) {
+        this.registry = registry;
+        this.segments = segments;
+    }
+
+    public static TransactionLedger of(Collection<Transaction> transactions) {
+        return of(TransactionTable.of(transactions));
+    }
+
+    public static TransactionLedger of(TransactionTable table) {
+        return of(table, SEGMENT_SIZE);
+    }
+
+    static TransactionLedger of(TransactionTable table, int segmentSize) {
+        // 按 (年份, 行号) 排序，同一年内保持追加顺序
+        long[] keys = new long[table.size()];
+        for (int row = 0; row < keys.length; row++) {
+            keys[row] = ((long) table.getYear(row) << 32) | row;
+        }
+        Arrays.sort(keys);
+        List<Segment> segments = new ArrayList<>();
+        int start = 0;
+        while (start < keys.length) {
+            int year = (int) (keys[start] >> 32);
+            int end = start;
+            while (end < keys.length && end - start < segmentSize && (int) (keys[end] >> 32) == year) {
+                end++;
+            }
+            int[] traderIds = new int[end - start];
+            int[] values = new int[end - start];
+            for (int i = start; i < end; i++) {
+                int row = (int) keys[i];
+                traderIds[i - start] = table.getTraderId(row);
+                values[i - start] = table.getValue(row);
+            }
+            segments.add(new Segment(year, traderIds, values));
+            start = end;
+        }
+        return new TransactionLedger(table.registry(), Collections.unmodifiableList(segments));
+    }
+
+    public TraderRegistry registry() {
+        return registry;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    // ---------------------------- 只用统计信息回答的查询 ----------------------------
+
+    /**
+     * 最高的交易额，对应 TransactionTest.test12、test15
+     */
+    public OptionalInt maxValue() {
+        int max = Integer.MIN_VALUE;
+        for (Segment segment : segments) {
+            max = Math.max(max, segment.max);
+        }
+        return segments.isEmpty() ? OptionalInt.empty() : OptionalInt.of(max);
+    }
+
+    public OptionalInt minValue() {
+        int min = Integer.MAX_VALUE;
+        for (Segment segment : segments) {
+            min = Math.min(min, segment.min);
+        }
+        return segments.isEmpty() ? OptionalInt.empty() : OptionalInt.of(min);
+    }
+
+    /**
+     * 交易额最小的交易，对应 TransactionTest.test13、test14
+     */
+    public Optional<Transaction> minTransaction() {
+        return minTransaction(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 某一年交易额最小的交易
+     */
+    public Optional<Transaction> minTransaction(int year) {
+        return minTransaction(year, year);
+    }
+
+    public Optional<Transaction> maxTransaction(int year) {
+        Segment best = null;
+        for (Segment segment : segments) {
+            if (segment.year == year && (best == null || segment.max > best.max)) {
+                best = segment;
+            }
+        }
+        return best == null ? Optional.empty() : Optional.of(best.toTransaction(best.maxRow, registry));
+    }
+
+    /**
+     * 是否有交易额大于 value 的交易
+     */
+    public boolean anyValueGreaterThan(int value) {
+        for (Segment segment : segments) {
+            if (segment.max > value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long sumValue(int year) {
+        long sum = 0;
+        for (Segment segment : segments) {
+            if (segment.year == year) {
+                sum += segment.sum;
+            }
+        }
+        return sum;
+    }
+
+    public long count(int year) {
+        long count = 0;
+        for (Segment segment : segments) {
+            if (segment.year == year) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    // ---------------------------- 跳过段的扫描 ----------------------------
+
+    /**
+     * 交易额大于 value 的交易数：max <= value 的段直接跳过，min > value 的段整段计入，其余段才扫描
+     */
+    public long countValueGreaterThan(int value) {
+        long count = 0;
+        for (Segment segment : segments) {
+            if (segment.max <= value) {
+                continue;
+            }
+            if (segment.min > value) {
+                count += segment.size();
+                continue;
+            }
+            for (int v : segment.values) {
+                if (v > value) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 年份在 [fromYear, toYear]、交易额在 [minValue, maxValue] 内的交易
+     */
+    public List<Transaction> find(int fromYear, int toYear, int minValue, int maxValue) {
+        List<Transaction> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (segment.year < fromYear || segment.year > toYear
+                    || segment.max < minValue || segment.min > maxValue) {
+                continue;
+            }
+            for (int i = 0; i < segment.values.length; i++) {
+                int v = segment.values[i];
+                if (v >= minValue && v <= maxValue) {
+                    result.add(segment.toTransaction(i, registry));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 某个交易员的所有交易，交易员 id 不在段的范围内时跳过该段
+     */
+    public List<Transaction> findByTrader(int traderId) {
+        List<Transaction> result = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (traderId < segment.minTraderId || traderId > segment.maxTraderId) {
+                continue;
+            }
+            for (int i = 0; i < segment.traderIds.length; i++) {
+                if (segment.traderIds[i] == traderId) {
+                    result.add(segment.toTransaction(i, registry));
+                }
+            }
+        }
+        return result;
+    }
+
+    private Optional<Transaction> minTransaction(int fromYear, int toYear) {
+        Segment best = null;
+        for (Segment segment : segments) {
+            if (segment.year >= fromYear && segment.year <= toYear && (best == null || segment.min < best.min)) {
+                best = segment;
+            }
+        }
+        return best == null ? Optional.empty() : Optional.of(best.toTransaction(best.minRow, registry));
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionLedger{" +
+                "size=" + size() +
+                ", segments=" + segments.size() +
+                '}';
+    }
+
+    /**
+     * 不可变的段：同一年份的一批交易及其统计信息
+     */
+    public static final class Segment {
+
+        private final int year;
+        private final int[] traderIds;
+        private final int[] values;
+        private final long sum;
+        private final int min;
+        private final int max;
+        private final int minRow;
+        private final int maxRow;
+        private final int minTraderId;
+        private final int maxTraderId;
+
+        Segment(int year, int[] traderIds, int[] values) {
+            this.year = year;
+            this.traderIds = traderIds;
+            this.values = values;
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minRow = 0;
+            int maxRow = 0;
+            int minTraderId = Integer.MAX_VALUE;
+            int maxTraderId = Integer.MIN_VALUE;
+            for (int i = 0; i < values.length; i++) {
+                int v = values[i];
+                sum += v;
+                if (v < min) {
+                    min = v;
+                    minRow = i;
+                }
+                if (v > max) {
+                    max = v;
+                    maxRow = i;
+                }
+                minTraderId = Math.min(minTraderId, traderIds[i]);
+                maxTraderId = Math.max(maxTraderId, traderIds[i]);
+            }
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.minRow = minRow;
+            this.maxRow = maxRow;
+            this.minTraderId = minTraderId;
+            this.maxTraderId = maxTraderId;
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public int getMin() {
+            return min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public int getMinTraderId() {
+            return minTraderId;
+        }
+
+        public int getMaxTraderId() {
+            return maxTraderId;
+        }
+
+        private Transaction toTransaction(int i, TraderRegistry registry) {
+            return new Transaction(registry.trader(traderIds[i]), year, values[i]);
+        }
+
+        @Override
+        public String toString() {
+            return "Segment{" +
+                    "year=" + year +
+                    ", count=" + values.length +
+                    ", sum=" + sum +
+                    ", min=" + min +
+                    ", max=" + max +
+                    ", traderIds=[" + minTraderId + ", " + maxTraderId + "]" +
+                    '}';
+        }
+    }
+}
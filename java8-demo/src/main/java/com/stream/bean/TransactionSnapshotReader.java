@@ -0,0 +1,261 @@
+package com.stream.bean;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-28
+ * 交易快照的流式读取，格式见 TransactionSnapshotWriter
+ * 每块读入后先校验 CRC32，再按列解码；交易通过回调逐行交给调用方，不创建 Transaction 对象，
+ * 可以直接写入 TransactionStore 或 TransactionTable。文件损坏、截断时抛出异常，不会返回部分数据而不报错；
+ * 块长度超过 MAX_BLOCK_LENGTH 时在分配缓冲之前就报错，E 块之后还有数据也视为损坏。
+ * 非线程安全。
+ */
+public class TransactionSnapshotReader implements Closeable {
+
+    /**
+     * 解码出的一行交易，traderId 为快照中的交易员 id，对应 registry() 中的交易员
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(int traderId, int year, int value);
+    }
+
+    private final DataInputStream in;
+    private final TraderRegistry registry = new TraderRegistry();
+    private final CRC32 crc = new CRC32();
+    private byte[] payload = new byte[1 << 12];
+    private int position;
+    private int limit;
+    private long blocks;
+
+    public TransactionSnapshotReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        int magic = this.in.readInt();
+        if (magic != TransactionSnapshotWriter.MAGIC) {
+            throw new IllegalArgumentException("not a transaction snapshot");
+        }
+        int version = this.in.readInt();
+        if (version != TransactionSnapshotWriter.VERSION) {
+            throw new IllegalArgumentException("unsupported snapshot version: " + version);
+        }
+    }
+
+    /**
+     * 加载快照文件到一个新的带索引的交易存储
+     */
+    public static TransactionStore load(Path file) throws IOException {
+        TransactionStore store = new TransactionStore();
+        try (TransactionSnapshotReader reader = new TransactionSnapshotReader(Files.newInputStream(file))) {
+            reader.readInto(store);
+        }
+        return store;
+    }
+
+    /**
+     * 快照中的交易员，随着字典块的读取逐步增加
+     */
+    public TraderRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * 追加到交易存储，交易员 id 转换为存储中注册表的 id，返回行数
+     */
+    public long readInto(TransactionStore store) throws IOException {
+        return read(new StoreLoader(store));
+    }
+
+    /**
+     * 逐行读取全部交易，返回行数
+     */
+    public long read(RecordHandler handler) throws IOException {
+        long rows = 0;
+        int[] traderIds = new int[0];
+        int[] years = new int[0];
+        while (true) {
+            byte type = readBlock();
+            if (type == TransactionSnapshotWriter.DICTIONARY) {
+                int count = readVarInt();
+                for (int i = 0; i < count; i++) {
+                    String name = readString();
+                    String city = readString();
+                    int size = registry.size();
+                    if (registry.register(name, city) != size) {
+                        throw malformed("duplicate trader " + name);
+                    }
+                }
+            } else if (type == TransactionSnapshotWriter.TRANSACTIONS) {
+                int count = readVarInt();
+                if (count < 0 || count > limit) {
+                    throw malformed("invalid row count " + count);
+                }
+                if (traderIds.length < count) {
+                    traderIds = new int[count];
+                    years = new int[count];
+                }
+                int traders = registry.size();
+                for (int i = 0; i < count; i++) {
+                    int traderId = readVarInt();
+                    if (traderId < 0 || traderId >= traders) {
+                        throw malformed("unknown trader id " + traderId);
+                    }
+                    traderIds[i] = traderId;
+                }
+                int year = 0;
+                for (int i = 0; i < count; i++) {
+                    year += unzigzag(readVarInt());
+                    years[i] = year;
+                }
+                for (int i = 0; i < count; i++) {
+                    handler.accept(traderIds[i], years[i], unzigzag(readVarInt()));
+                }
+                rows += count;
+            } else if (type == TransactionSnapshotWriter.END) {
+                long totalRows = readVarLong();
+                int totalTraders = readVarInt();
+                if (totalRows != rows || totalTraders != registry.size()) {
+                    throw malformed("expected " + totalRows + " rows and " + totalTraders + " traders, read "
+                            + rows + " rows and " + registry.size() + " traders");
+                }
+                if (position != limit) {
+                    throw malformed("trailing bytes");
+                }
+                if (in.read() >= 0) {
+                    throw malformed("trailing data after end block");
+                }
+                return rows;
+            } else {
+                throw malformed("unknown block type " + type);
+            }
+            if (position != limit) {
+                throw malformed("trailing bytes");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * 读入一块并校验，返回块类型
+     */
+    private byte readBlock() throws IOException {
+        byte type;
+        int length;
+        try {
+            type = in.readByte();
+            length = in.readInt();
+        } catch (EOFException e) {
+            throw new EOFException("snapshot is truncated before block " + blocks);
+        }
+        if (length < 0 || length > TransactionSnapshotWriter.MAX_BLOCK_LENGTH) {
+            throw malformed("invalid block length " + length);
+        }
+        if (payload.length < length) {
+            payload = new byte[Math.max(length, payload.length << 1)];
+        }
+        in.readFully(payload, 0, length);
+        int checksum = in.readInt();
+        crc.reset();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            throw malformed("checksum mismatch");
+        }
+        position = 0;
+        limit = length;
+        blocks++;
+        return type;
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = next();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed("varint too long");
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = next();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw malformed("varint too long");
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        if (length < 0 || length > limit - position) {
+            throw malformed("invalid string length " + length);
+        }
+        String value = new String(payload, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private byte next() {
+        if (position >= limit) {
+            throw malformed("unexpected end of block");
+        }
+        return payload[position++];
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private IllegalArgumentException malformed(String message) {
+        return new IllegalArgumentException("block " + blocks + ": " + message);
+    }
+
+    /**
+     * 写入交易存储，快照中的交易员 id 在第一次出现时转换为存储中的 id
+     */
+    private final class StoreLoader implements RecordHandler {
+
+        private final TransactionStore store;
+        private int[] mapping = new int[16];
+        private int mapped;
+
+        StoreLoader(TransactionStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void accept(int traderId, int year, int value) {
+            if (traderId >= mapped) {
+                int size = registry.size();
+                if (size > mapping.length) {
+                    mapping = Arrays.copyOf(mapping, Math.max(size, mapping.length << 1));
+                }
+                TraderRegistry target = store.table().registry();
+                for (int id = mapped; id < size; id++) {
+                    mapping[id] = target.register(registry.trader(id));
+                }
+                mapped = size;
+            }
+            store.add(mapping[traderId], year, value);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.stream.bean;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-28
+ * 交易快照的流式写入，格式：
+ * 文件头：魔数 TXS1、版本号（int）
+ * 之后是一串块，每块为 类型(byte)、负载长度(int)、负载、负载的 CRC32(int)：
+ * D 交易员字典块：本块新增的交易员个数，之后每个交易员为 姓名、城市（varint 长度 + UTF-8），id 按出现顺序递增；
+ * T 交易块：行数，之后按列保存 交易员id（varint）、年份（第一行为 zigzag varint，之后为与上一行的差值）、交易额（zigzag varint）；
+ * E 结束块：总行数、交易员总数。
+ * 交易按 BLOCK_SIZE 行一块缓冲，块中第一次出现的交易员先写在紧邻的 D 块中，读取时不需要回看。
+ * 每块负载不超过 MAX_BLOCK_LENGTH，新交易员较多时字典拆成连续的多个 D 块。
+ * 非线程安全。
+ */
+public class TransactionSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x54585331;
+    static final int VERSION = 1;
+    static final byte DICTIONARY = 'D';
+    static final byte TRANSACTIONS = 'T';
+    static final byte END = 'E';
+    /**
+     * 每块最多的交易数
+     */
+    static final int BLOCK_SIZE = 1 << 16;
+    /**
+     * 块负载的最大长度，即 BLOCK_SIZE 行的 T 块中每个 varint 都取最长 5 字节时的长度
+     */
+    static final int MAX_BLOCK_LENGTH = 5 + 3 * 5 * BLOCK_SIZE;
+
+    private final DataOutputStream out;
+    private final TraderRegistry registry = new TraderRegistry();
+    private final int blockSize;
+    private final int[] traderIds;
+    private final int[] years;
+    private final int[] values;
+    private final BlockBuffer payload = new BlockBuffer();
+    private final BlockBuffer entries = new BlockBuffer();
+    private final CRC32 crc = new CRC32();
+    private int rows;
+    private int writtenTraders;
+    private long totalRows;
+    private boolean closed;
+
+    public TransactionSnapshotWriter(OutputStream out) throws IOException {
+        this(out, BLOCK_SIZE);
+    }
+
+    TransactionSnapshotWriter(OutputStream out, int blockSize) throws IOException {
+        if (blockSize <= 0 || blockSize > BLOCK_SIZE) {
+            throw new IllegalArgumentException("blockSize: " + blockSize + ", max: " + BLOCK_SIZE);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.blockSize = blockSize;
+        this.traderIds = new int[blockSize];
+        this.years = new int[blockSize];
+        this.values = new int[blockSize];
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * 将一组交易写成快照文件
+     */
+    public static void write(Path file, Collection<Transaction> transactions) throws IOException {
+        try (TransactionSnapshotWriter writer = new TransactionSnapshotWriter(Files.newOutputStream(file))) {
+            for (Transaction transaction : transactions) {
+                writer.write(transaction);
+            }
+        }
+    }
+
+    /**
+     * 将交易表写成快照文件
+     */
+    public static void write(Path file, TransactionTable table) throws IOException {
+        try (TransactionSnapshotWriter writer = new TransactionSnapshotWriter(Files.newOutputStream(file))) {
+            writer.write(table);
+        }
+    }
+
+    public void write(Transaction transaction) throws IOException {
+        write(transaction.getTrader(), transaction.getYear(), transaction.getValue());
+    }
+
+    public void write(Trader trader, int year, int value) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("writer is closed");
+        }
+        if (registry.idOf(trader) < 0) {
+            int length = entryLength(trader);
+            if (length > MAX_BLOCK_LENGTH - 5) {
+                throw new IllegalArgumentException("trader name and city take " + length + " bytes, max: "
+                        + (MAX_BLOCK_LENGTH - 5));
+            }
+        }
+        traderIds[rows] = registry.register(trader);
+        years[rows] = year;
+        values[rows] = value;
+        if (++rows == blockSize) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * 写入交易表中的所有交易，不创建 Transaction 对象
+     */
+    public void write(TransactionTable table) throws IOException {
+        for (int row = 0; row < table.size(); row++) {
+            write(table.getTrader(row), table.getYear(row), table.getValue(row));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushBlock();
+            payload.clear();
+            payload.writeVarLong(totalRows);
+            payload.writeVarInt(writtenTraders);
+            writeBlock(END);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        // 本块新出现的交易员
+        int traderCount = registry.size();
+        int id = writtenTraders;
+        while (id < traderCount) {
+            // 超过 MAX_BLOCK_LENGTH 的交易员留到下一个 D 块，write 时已经保证单个交易员放得下
+            int from = id;
+            entries.clear();
+            while (id < traderCount) {
+                int size = entries.size;
+                Trader trader = registry.trader(id);
+                entries.writeString(trader.getName());
+                entries.writeString(trader.getCity());
+                if (entries.size > MAX_BLOCK_LENGTH - 5 && id > from) {
+                    entries.size = size;
+                    break;
+                }
+                id++;
+            }
+            payload.clear();
+            payload.writeVarInt(id - from);
+            payload.write(entries);
+            writeBlock(DICTIONARY);
+        }
+        writtenTraders = traderCount;
+        payload.clear();
+        payload.writeVarInt(rows);
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarInt(traderIds[i]);
+        }
+        int previous = 0;
+        for (int i = 0; i < rows; i++) {
+            // 同一块内的年份通常相同或相近，差值编码后大多只占一个字节
+            payload.writeVarInt(zigzag(years[i] - previous));
+            previous = years[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            payload.writeVarInt(zigzag(values[i]));
+        }
+        writeBlock(TRANSACTIONS);
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private void writeBlock(byte type) throws IOException {
+        crc.reset();
+        crc.update(payload.bytes, 0, payload.size);
+        out.writeByte(type);
+        out.writeInt(payload.size);
+        out.write(payload.bytes, 0, payload.size);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * 交易员在 D 块中占用的字节数
+     */
+    private static int entryLength(Trader trader) {
+        return stringLength(trader.getName()) + stringLength(trader.getCity());
+    }
+
+    private static int stringLength(String value) {
+        int length = value.getBytes(StandardCharsets.UTF_8).length;
+        return length + (32 - Integer.numberOfLeadingZeros(length | 1) + 6) / 7;
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * 可增长的字节缓冲，varint 编码
+     */
+    private static final class BlockBuffer {
+
+        private byte[] bytes = new byte[1 << 12];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        void write(BlockBuffer other) {
+            ensure(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.stream.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-21
+ * 带二级索引的交易存储
+ * 在 TransactionTable 的基础上维护两个倒排索引：年份 -> 行号、城市 -> 行号，追加交易时同步更新。
+ * 查询时先用索引得到候选行号并求交集，最后才读取行数据做剩余条件（交易额区间）的过滤，
+ * 选择性高的查询只访问命中的行，不需要扫描全部交易。
+ * 非线程安全。
+ */
+public class TransactionStore {
+
+    private final TransactionTable table;
+    private final Map<Integer, Postings> yearIndex = new HashMap<>();
+    /**
+     * 下标为城市 id
+     */
+    private Postings[] cityIndex = new Postings[8];
+
+    public TransactionStore() {
+        this(new TransactionTable());
+    }
+
+    /**
+     * 在已有的交易表上建立索引，交易表归这个存储独占，之后只能通过 add 追加；
+     * 不公开，避免两个存储共用一张表、一方追加的行不出现在另一方的索引中
+     */
+    TransactionStore(TransactionTable table) {
+        this.table = table;
+        for (int row = 0; row < table.size(); row++) {
+            index(row);
+        }
+    }
+
+    public static TransactionStore of(Collection<Transaction> transactions) {
+        TransactionStore store = new TransactionStore();
+        for (Transaction transaction : transactions) {
+            store.add(transaction);
+        }
+        return store;
+    }
+
+    public int add(Transaction transaction) {
+        int row = table.add(transaction);
+        index(row);
+        return row;
+    }
+
+    public int add(int traderId, int year, int value) {
+        int row = table.add(traderId, year, value);
+        index(row);
+        return row;
+    }
+
+    /**
+     * 底层的交易表，只能读取；新交易通过 add 写入，同时更新索引
+     */
+    public TransactionTable table() {
+        return table;
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public Query query() {
+        return new Query();
+    }
+
+    private void index(int row) {
+        yearIndex.computeIfAbsent(table.getYear(row), y -> new Postings()).add(row);
+        int cityId = table.registry().cityIdOf(table.getTraderId(row));
+        if (cityId >= cityIndex.length) {
+            cityIndex = Arrays.copyOf(cityIndex, Math.max(cityId + 1, cityIndex.length << 1));
+        }
+        if (cityIndex[cityId] == null) {
+            cityIndex[cityId] = new Postings();
+        }
+        cityIndex[cityId].add(row);
+    }
+
+    private Postings cityPostings(String city) {
+        int cityId = table.registry().cityId(city);
+        return cityId < 0 || cityId >= cityIndex.length ? null : cityIndex[cityId];
+    }
+
+    /**
+     * 查询条件，条件之间为 且 的关系
+     * 例如 2011 年剑桥交易员的交易：store.query().year(2011).city("Cambridge").rows()
+     */
+    public class Query {
+
+        private final List<Integer> years = new ArrayList<>(1);
+        private final List<String> cities = new ArrayList<>(1);
+        private int minValue = Integer.MIN_VALUE;
+        private int maxValue = Integer.MAX_VALUE;
+
+        private Query() {
+        }
+
+        public Query year(int year) {
+            years.add(year);
+            return this;
+        }
+
+        public Query city(String city) {
+            cities.add(city);
+            return this;
+        }
+
+        /**
+         * 交易额在 [min, max] 闭区间内，这个条件没有索引，在读取行数据时过滤
+         */
+        public Query valueBetween(int min, int max) {
+            minValue = Math.max(minValue, min);
+            maxValue = Math.min(maxValue, max);
+            return this;
+        }
+
+        /**
+         * 满足条件的行号（升序）
+         */
+        public int[] rows() {
+            List<Postings> postings = postings();
+            if (postings == null) {
+                return Postings.EMPTY;
+            }
+            int[] candidates;
+            if (postings.isEmpty()) {
+                candidates = new int[table.size()];
+                for (int i = 0; i < candidates.length; i++) {
+                    candidates[i] = i;
+                }
+            } else {
+                // 从最短的倒排列表开始求交集，中间结果最小
+                candidates = postings.get(0).toArray();
+                for (int i = 1; i < postings.size() && candidates.length > 0; i++) {
+                    candidates = postings.get(i).intersect(candidates);
+                }
+            }
+            if (minValue == Integer.MIN_VALUE && maxValue == Integer.MAX_VALUE) {
+                return candidates;
+            }
+            int n = 0;
+            for (int row : candidates) {
+                int value = table.getValue(row);
+                if (value >= minValue && value <= maxValue) {
+                    candidates[n++] = row;
+                }
+            }
+            return Arrays.copyOf(candidates, n);
+        }
+
+        /**
+         * 满足条件的行号（升序），逐行产生，不保存中间结果
+         * 从最短的倒排列表开始，其余列表用二分查找判断是否包含
+         */
+        public IntStream stream() {
+            List<Postings> postings = postings();
+            if (postings == null) {
+                return IntStream.empty();
+            }
+            IntStream candidates;
+            if (postings.isEmpty()) {
+                candidates = IntStream.range(0, table.size());
+            } else {
+                candidates = postings.get(0).stream();
+                for (int i = 1; i < postings.size(); i++) {
+                    candidates = candidates.filter(postings.get(i)::contains);
+                }
+            }
+            if (minValue == Integer.MIN_VALUE && maxValue == Integer.MAX_VALUE) {
+                return candidates;
+            }
+            int min = minValue;
+            int max = maxValue;
+            return candidates.filter(row -> {
+                int value = table.getValue(row);
+                return value >= min && value <= max;
+            });
+        }
+
+        /**
+         * 条件对应的倒排列表，按长度升序；有条件没有命中任何行时返回 null
+         */
+        private List<Postings> postings() {
+            List<Postings> postings = new ArrayList<>(years.size() + cities.size());
+            for (int year : years) {
+                Postings p = yearIndex.get(year);
+                if (p == null) {
+                    return null;
+                }
+                postings.add(p);
+            }
+            for (String city : cities) {
+                Postings p = cityPostings(city);
+                if (p == null) {
+                    return null;
+                }
+                postings.add(p);
+            }
+            postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            return postings;
+        }
+
+        public int count() {
+            return rows().length;
+        }
+
+        public long sumValue() {
+            long sum = 0;
+            for (int row : rows()) {
+                sum += table.getValue(row);
+            }
+            return sum;
+        }
+
+        public int[] values() {
+            int[] rows = rows();
+            int[] result = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                result[i] = table.getValue(rows[i]);
+            }
+            return result;
+        }
+
+        public List<Transaction> transactions() {
+            int[] rows = rows();
+            List<Transaction> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                result.add(table.toTransaction(row));
+            }
+            return result;
+        }
+    }
+}
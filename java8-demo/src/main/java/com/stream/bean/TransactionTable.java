@@ -0,0 +1,156 @@
+package com.stream.bean;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-20
+ * 列式存储的交易表：每笔交易只保存 交易员id、年份、交易额 三个 int
+ * 交易员通过 TraderRegistry 编码，城市、交易员的去重都在位图上完成，不需要对 String 或 Trader 做哈希。
+ * 只能追加，不支持修改和删除；追加只在包内进行（of、TransactionStore、快照读取），
+ * 所以 TransactionStore.table() 交给调用方的表不能绕过索引写入。非线程安全。
+ */
+public class TransactionTable {
+
+    private final TraderRegistry registry;
+    private int size;
+    private int[] traderIds = new int[16];
+    private int[] years = new int[16];
+    private int[] values = new int[16];
+
+    public TransactionTable() {
+        this(new TraderRegistry());
+    }
+
+    public TransactionTable(TraderRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static TransactionTable of(Collection<Transaction> transactions) {
+        TransactionTable table = new TransactionTable();
+        for (Transaction transaction : transactions) {
+            table.add(transaction);
+        }
+        return table;
+    }
+
+    /**
+     * 追加一笔交易，返回行号
+     */
+    int add(Transaction transaction) {
+        return add(registry.register(transaction.getTrader()), transaction.getYear(), transaction.getValue());
+    }
+
+    int add(int traderId, int year, int value) {
+        if (traderId < 0 || traderId >= registry.size()) {
+            throw new IllegalArgumentException("unknown trader id: " + traderId);
+        }
+        if (size == traderIds.length) {
+            int newLength = size + (size >> 1);
+            traderIds = Arrays.copyOf(traderIds, newLength);
+            years = Arrays.copyOf(years, newLength);
+            values = Arrays.copyOf(values, newLength);
+        }
+        traderIds[size] = traderId;
+        years[size] = year;
+        values[size] = value;
+        return size++;
+    }
+
+    public TraderRegistry registry() {
+        return registry;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getTraderId(int row) {
+        return traderIds[checkRow(row)];
+    }
+
+    public int getYear(int row) {
+        return years[checkRow(row)];
+    }
+
+    public int getValue(int row) {
+        return values[checkRow(row)];
+    }
+
+    public Trader getTrader(int row) {
+        return registry.trader(getTraderId(row));
+    }
+
+    /**
+     * 只有在确实需要对象的时候才创建 Transaction
+     */
+    public Transaction toTransaction(int row) {
+        return new Transaction(getTrader(row), getYear(row), getValue(row));
+    }
+
+    // ---------------------------- 去重 ----------------------------
+
+    /**
+     * 出现过的交易员 id
+     */
+    public BitSet distinctTraderIds() {
+        BitSet result = new BitSet(registry.size());
+        for (int i = 0; i < size; i++) {
+            result.set(traderIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 出现过的城市 id
+     */
+    public BitSet distinctCityIds() {
+        return registry.citiesOf(distinctTraderIds());
+    }
+
+    /**
+     * 交易员都在哪些不同的城市工作过，对应 TransactionTest.test2、test3
+     */
+    public List<String> distinctCities() {
+        BitSet cityIds = distinctCityIds();
+        List<String> result = new ArrayList<>(cityIds.cardinality());
+        for (int id = cityIds.nextSetBit(0); id >= 0; id = cityIds.nextSetBit(id + 1)) {
+            result.add(registry.city(id));
+        }
+        return result;
+    }
+
+    /**
+     * 在某个城市、并且有交易的交易员（去重）按姓名排序，对应 TransactionTest.test4、test5
+     */
+    public List<Trader> tradersInCity(String city) {
+        BitSet traders = distinctTraderIds();
+        traders.and(registry.tradersInCity(city));
+        List<Trader> result = new ArrayList<>(traders.cardinality());
+        for (int id = traders.nextSetBit(0); id >= 0; id = traders.nextSetBit(id + 1)) {
+            result.add(registry.trader(id));
+        }
+        result.sort(Comparator.comparing(Trader::getName));
+        return result;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+        }
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionTable{" +
+                "size=" + size +
+                ", traders=" + registry.size() +
+                '}';
+    }
+}
@@ -0,0 +1,298 @@
+package com.stream.collector;
+
+import com.stream.bean.CaloricLevel;
+import com.stream.bean.Dish;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IntSummaryStatistics;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-11
+ * 以枚举为分组键的收集器
+ * Collectors.groupingBy 会创建 HashMap，并且 counting、summingInt 的累加器都是装箱的 Long、Integer。
+ * 分组键是 Dish.Type、CaloricLevel 这类很小的枚举时，可以直接用枚举序号作为数组下标进行累加，
+ * 累加过程全部使用原始类型，只在最后生成 EnumMap 结果。
+ * 与 groupingBy 一致：没有元素的分组不会出现在结果中。
+ */
+public final class EnumCollectors {
+
+    private EnumCollectors() {
+    }
+
+    /**
+     * 对应 groupingBy(classifier, counting())
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, Long>> counting(
+            Class<K> keyType, Function<? super T, K> classifier) {
+        return Collector.of(
+                () -> new IntBuckets(size(keyType)),
+                (b, t) -> b.count[classifier.apply(t).ordinal()]++,
+                IntBuckets::merge,
+                b -> {
+                    EnumMap<K, Long> result = new EnumMap<>(keyType);
+                    K[] keys = keyType.getEnumConstants();
+                    for (int i = 0; i < keys.length; i++) {
+                        if (b.count[i] > 0) {
+                            result.put(keys[i], b.count[i]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 对应 groupingBy(classifier, summingInt(mapper))，使用 long 累加避免溢出
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, Long>> summingInt(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                () -> new IntBuckets(size(keyType)),
+                (b, t) -> b.accept(classifier.apply(t).ordinal(), mapper.applyAsInt(t)),
+                IntBuckets::merge,
+                b -> {
+                    EnumMap<K, Long> result = new EnumMap<>(keyType);
+                    K[] keys = keyType.getEnumConstants();
+                    for (int i = 0; i < keys.length; i++) {
+                        if (b.count[i] > 0) {
+                            result.put(keys[i], b.sum[i]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 每个分组中 mapper 的最小值
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, Integer>> minInt(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                () -> new IntBuckets(size(keyType)),
+                (b, t) -> b.accept(classifier.apply(t).ordinal(), mapper.applyAsInt(t)),
+                IntBuckets::merge,
+                b -> {
+                    EnumMap<K, Integer> result = new EnumMap<>(keyType);
+                    K[] keys = keyType.getEnumConstants();
+                    for (int i = 0; i < keys.length; i++) {
+                        if (b.count[i] > 0) {
+                            result.put(keys[i], b.min[i]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 每个分组中 mapper 的最大值
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, Integer>> maxInt(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                () -> new IntBuckets(size(keyType)),
+                (b, t) -> b.accept(classifier.apply(t).ordinal(), mapper.applyAsInt(t)),
+                IntBuckets::merge,
+                b -> {
+                    EnumMap<K, Integer> result = new EnumMap<>(keyType);
+                    K[] keys = keyType.getEnumConstants();
+                    for (int i = 0; i < keys.length; i++) {
+                        if (b.count[i] > 0) {
+                            result.put(keys[i], b.max[i]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 每个分组中 mapper 值最大的元素，对应 groupingBy(classifier, maxBy(comparingInt(mapper)))
+     * 值相同时保留先出现的元素；与 maxBy 不同，结果不包装 Optional
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, T>> maxBy(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.<T, ElementBuckets<T>, EnumMap<K, T>>of(
+                () -> new ElementBuckets<>(size(keyType)),
+                (b, t) -> b.acceptMax(classifier.apply(t).ordinal(), mapper.applyAsInt(t), t),
+                ElementBuckets::mergeMax,
+                b -> b.toMap(keyType));
+    }
+
+    /**
+     * 每个分组中 mapper 值最小的元素
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, T>> minBy(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.<T, ElementBuckets<T>, EnumMap<K, T>>of(
+                () -> new ElementBuckets<>(size(keyType)),
+                (b, t) -> b.acceptMin(classifier.apply(t).ordinal(), mapper.applyAsInt(t), t),
+                ElementBuckets::mergeMin,
+                b -> b.toMap(keyType));
+    }
+
+    /**
+     * 对应 groupingBy(classifier, summarizingInt(mapper))
+     */
+    public static <T, K extends Enum<K>> Collector<T, ?, EnumMap<K, IntSummaryStatistics>> summarizingInt(
+            Class<K> keyType, Function<? super T, K> classifier, ToIntFunction<? super T> mapper) {
+        return Collector.of(
+                () -> new IntSummaryStatistics[size(keyType)],
+                (a, t) -> {
+                    int i = classifier.apply(t).ordinal();
+                    if (a[i] == null) {
+                        a[i] = new IntSummaryStatistics();
+                    }
+                    a[i].accept(mapper.applyAsInt(t));
+                },
+                (a, b) -> {
+                    for (int i = 0; i < a.length; i++) {
+                        if (a[i] == null) {
+                            a[i] = b[i];
+                        } else if (b[i] != null) {
+                            a[i].combine(b[i]);
+                        }
+                    }
+                    return a;
+                },
+                a -> {
+                    EnumMap<K, IntSummaryStatistics> result = new EnumMap<>(keyType);
+                    K[] keys = keyType.getEnumConstants();
+                    for (int i = 0; i < keys.length; i++) {
+                        if (a[i] != null) {
+                            result.put(keys[i], a[i]);
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    // ---------------------------- 菜肴常用分组 ----------------------------
+
+    public static Collector<Dish, ?, EnumMap<Dish.Type, Long>> countingByType() {
+        return counting(Dish.Type.class, Dish::getType);
+    }
+
+    public static Collector<Dish, ?, EnumMap<Dish.Type, Long>> summingCaloriesByType() {
+        return summingInt(Dish.Type.class, Dish::getType, Dish::getCalories);
+    }
+
+    public static Collector<Dish, ?, EnumMap<Dish.Type, Dish>> maxCaloriesByType() {
+        return maxBy(Dish.Type.class, Dish::getType, Dish::getCalories);
+    }
+
+    public static Collector<Dish, ?, EnumMap<CaloricLevel, Long>> countingByCaloricLevel() {
+        return counting(CaloricLevel.class, Dish::getCaloriecLevel);
+    }
+
+    public static Collector<Dish, ?, EnumMap<CaloricLevel, IntSummaryStatistics>> summarizingCaloriesByCaloricLevel() {
+        return summarizingInt(CaloricLevel.class, Dish::getCaloriecLevel, Dish::getCalories);
+    }
+
+    private static int size(Class<? extends Enum<?>> keyType) {
+        return keyType.getEnumConstants().length;
+    }
+
+    /**
+     * 按枚举序号保存的原始类型累加器
+     */
+    private static final class IntBuckets {
+
+        final long[] count;
+        final long[] sum;
+        final int[] min;
+        final int[] max;
+
+        IntBuckets(int size) {
+            count = new long[size];
+            sum = new long[size];
+            min = new int[size];
+            max = new int[size];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        void accept(int i, int value) {
+            count[i]++;
+            sum[i] += value;
+            if (value < min[i]) {
+                min[i] = value;
+            }
+            if (value > max[i]) {
+                max[i] = value;
+            }
+        }
+
+        IntBuckets merge(IntBuckets other) {
+            for (int i = 0; i < count.length; i++) {
+                count[i] += other.count[i];
+                sum[i] += other.sum[i];
+                min[i] = Math.min(min[i], other.min[i]);
+                max[i] = Math.max(max[i], other.max[i]);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 按枚举序号保存每组的最值元素及其 int 键
+     */
+    private static final class ElementBuckets<T> {
+
+        final Object[] elements;
+        final int[] keys;
+
+        ElementBuckets(int size) {
+            elements = new Object[size];
+            keys = new int[size];
+        }
+
+        void acceptMax(int i, int key, T t) {
+            if (elements[i] == null || key > keys[i]) {
+                elements[i] = t;
+                keys[i] = key;
+            }
+        }
+
+        void acceptMin(int i, int key, T t) {
+            if (elements[i] == null || key < keys[i]) {
+                elements[i] = t;
+                keys[i] = key;
+            }
+        }
+
+        ElementBuckets<T> mergeMax(ElementBuckets<T> other) {
+            for (int i = 0; i < elements.length; i++) {
+                if (other.elements[i] != null && (elements[i] == null || other.keys[i] > keys[i])) {
+                    elements[i] = other.elements[i];
+                    keys[i] = other.keys[i];
+                }
+            }
+            return this;
+        }
+
+        ElementBuckets<T> mergeMin(ElementBuckets<T> other) {
+            for (int i = 0; i < elements.length; i++) {
+                if (other.elements[i] != null && (elements[i] == null || other.keys[i] < keys[i])) {
+                    elements[i] = other.elements[i];
+                    keys[i] = other.keys[i];
+                }
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        <K extends Enum<K>> EnumMap<K, T> toMap(Class<K> keyType) {
+            EnumMap<K, T> result = new EnumMap<>(keyType);
+            K[] constants = keyType.getEnumConstants();
+            for (int i = 0; i < constants.length; i++) {
+                if (elements[i] != null) {
+                    result.put(constants[i], (T) elements[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
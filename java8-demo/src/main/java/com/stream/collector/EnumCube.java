@@ -0,0 +1,222 @@
+package com.stream.collector;
+
+import com.stream.bean.CaloricLevel;
+import com.stream.bean.Dish;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-16
+ * 两个枚举维度的聚合立方体（交叉表）
+ * 代替 groupingBy(行, groupingBy(列)) 的两级分组：不再对每一行哈希两次、也不为每个单元格创建 List。
+ * 单元格下标为 行序号 * 列数 + 列序号，所有单元格保存在扁平的 long 数组中。
+ * 一次遍历同时计算 个数 和 多个度量的和，行/列方向的汇总（roll-up）直接在数组上完成。
+ *
+ * @param <R> 行维度
+ * @param <C> 列维度
+ */
+public final class EnumCube<R extends Enum<R>, C extends Enum<C>> {
+
+    private final Class<R> rowType;
+    private final Class<C> columnType;
+    private final int rows;
+    private final int columns;
+    private final int measures;
+    private final long[] counts;
+    /**
+     * 第 m 个度量在单元格 cell 的和保存在 sums[m * cells + cell]
+     */
+    private final long[] sums;
+
+    private EnumCube(Class<R> rowType, Class<C> columnType, int measures) {
+        this.rowType = rowType;
+        this.columnType = columnType;
+        this.rows = rowType.getEnumConstants().length;
+        this.columns = columnType.getEnumConstants().length;
+        this.measures = measures;
+        this.counts = new long[rows * columns];
+        this.sums = new long[measures * rows * columns];
+    }
+
+    /**
+     * 创建聚合立方体的收集器
+     *
+     * @param measures 需要求和的度量，按下标通过 sum(measure, ...) 读取
+     */
+    public static <T, R extends Enum<R>, C extends Enum<C>> Collector<T, ?, EnumCube<R, C>> collector(
+            Class<R> rowType, Function<? super T, R> rowClassifier,
+            Class<C> columnType, Function<? super T, C> columnClassifier,
+            List<ToIntFunction<? super T>> measures) {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ToIntFunction<? super T>[] mappers = measures.toArray(new ToIntFunction[0]);
+        return Collector.<T, EnumCube<R, C>>of(
+                () -> new EnumCube<>(rowType, columnType, mappers.length),
+                (cube, t) -> {
+                    int cell = cube.cell(rowClassifier.apply(t), columnClassifier.apply(t));
+                    cube.counts[cell]++;
+                    int cells = cube.counts.length;
+                    for (int m = 0; m < mappers.length; m++) {
+                        cube.sums[m * cells + cell] += mappers[m].applyAsInt(t);
+                    }
+                },
+                EnumCube::merge,
+                Collector.Characteristics.IDENTITY_FINISH,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * 菜肴按 类型 × 热量等级 聚合，度量 0 为热量，度量 1 为素食个数
+     */
+    public static Collector<Dish, ?, EnumCube<Dish.Type, CaloricLevel>> dishesByTypeAndCaloricLevel() {
+        return collector(Dish.Type.class, Dish::getType,
+                CaloricLevel.class, Dish::getCaloriecLevel,
+                Arrays.<ToIntFunction<? super Dish>>asList(Dish::getCalories, d -> d.isVegetarian() ? 1 : 0));
+    }
+
+    public int measures() {
+        return measures;
+    }
+
+    // ---------------------------- 单元格 ----------------------------
+
+    public long count(R row, C column) {
+        return counts[cell(row, column)];
+    }
+
+    public long sum(int measure, R row, C column) {
+        return sums[offset(measure) + cell(row, column)];
+    }
+
+    /**
+     * 单元格内度量的平均值，单元格为空时返回 0
+     */
+    public double average(int measure, R row, C column) {
+        long count = count(row, column);
+        return count == 0 ? 0.0d : (double) sum(measure, row, column) / count;
+    }
+
+    // ---------------------------- 汇总 ----------------------------
+
+    public long count() {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        return total;
+    }
+
+    public long sum(int measure) {
+        long total = 0;
+        int offset = offset(measure);
+        for (int cell = 0; cell < counts.length; cell++) {
+            total += sums[offset + cell];
+        }
+        return total;
+    }
+
+    /**
+     * 沿列方向汇总，得到每行的个数
+     */
+    public EnumMap<R, Long> countByRow() {
+        return rollUpRows(counts, 0);
+    }
+
+    /**
+     * 沿行方向汇总，得到每列的个数
+     */
+    public EnumMap<C, Long> countByColumn() {
+        return rollUpColumns(counts, 0);
+    }
+
+    public EnumMap<R, Long> sumByRow(int measure) {
+        return rollUpRows(sums, offset(measure));
+    }
+
+    public EnumMap<C, Long> sumByColumn(int measure) {
+        return rollUpColumns(sums, offset(measure));
+    }
+
+    /**
+     * 按 行 -> 列 -> 个数 展开，只包含非空的单元格，便于与 groupingBy 的结果对照
+     */
+    public EnumMap<R, EnumMap<C, Long>> countTable() {
+        R[] rowKeys = rowType.getEnumConstants();
+        C[] columnKeys = columnType.getEnumConstants();
+        EnumMap<R, EnumMap<C, Long>> result = new EnumMap<>(rowType);
+        for (int r = 0; r < rows; r++) {
+            EnumMap<C, Long> line = new EnumMap<>(columnType);
+            for (int c = 0; c < columns; c++) {
+                long count = counts[r * columns + c];
+                if (count > 0) {
+                    line.put(columnKeys[c], count);
+                }
+            }
+            if (!line.isEmpty()) {
+                result.put(rowKeys[r], line);
+            }
+        }
+        return result;
+    }
+
+    private EnumMap<R, Long> rollUpRows(long[] values, int offset) {
+        R[] keys = rowType.getEnumConstants();
+        EnumMap<R, Long> result = new EnumMap<>(rowType);
+        for (int r = 0; r < rows; r++) {
+            long total = 0;
+            for (int c = 0; c < columns; c++) {
+                total += values[offset + r * columns + c];
+            }
+            result.put(keys[r], total);
+        }
+        return result;
+    }
+
+    private EnumMap<C, Long> rollUpColumns(long[] values, int offset) {
+        C[] keys = columnType.getEnumConstants();
+        EnumMap<C, Long> result = new EnumMap<>(columnType);
+        for (int c = 0; c < columns; c++) {
+            long total = 0;
+            for (int r = 0; r < rows; r++) {
+                total += values[offset + r * columns + c];
+            }
+            result.put(keys[c], total);
+        }
+        return result;
+    }
+
+    private EnumCube<R, C> merge(EnumCube<R, C> other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] += other.sums[i];
+        }
+        return this;
+    }
+
+    private int cell(R row, C column) {
+        return row.ordinal() * columns + column.ordinal();
+    }
+
+    private int offset(int measure) {
+        if (measure < 0 || measure >= measures) {
+            throw new IndexOutOfBoundsException("measure: " + measure + ", measures: " + measures);
+        }
+        return measure * counts.length;
+    }
+
+    @Override
+    public String toString() {
+        return "EnumCube{" +
+                "rows=" + rowType.getSimpleName() +
+                ", columns=" + columnType.getSimpleName() +
+                ", counts=" + countTable() +
+                '}';
+    }
+}
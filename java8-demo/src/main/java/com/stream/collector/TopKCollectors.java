@@ -0,0 +1,252 @@
+package com.stream.collector;
+
+import com.stream.bean.Dish;
+import com.stream.bean.Transaction;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-13
+ * 取前 K 个元素的收集器，用来代替 sorted(...).limit(k) 或者 sorted(...).collect(toList()) 后只读前几个元素
+ * 累加器是一个容量为 k 的堆，堆顶是当前保留的元素中"最差"的一个，新元素只有比堆顶好时才会替换堆顶。
+ * 时间复杂度 O(n log k)，内存 O(k)；并行时各个分片的堆在 combiner 中合并。
+ * 结果与 sorted(...).limit(k) 完全一致：键相同的元素按流中出现的顺序排列。
+ */
+public final class TopKCollectors {
+
+    private TopKCollectors() {
+    }
+
+    /**
+     * 按 comparator 排序后的前 k 个元素（从小到大）
+     */
+    public static <T> Collector<T, ?, List<T>> least(int k, Comparator<? super T> comparator) {
+        checkK(k);
+        return Collector.<T, BoundedHeap<T>, List<T>>of(
+                () -> new BoundedHeap<>(k, comparator, false),
+                (h, t) -> h.offer(t, 0),
+                BoundedHeap::merge,
+                BoundedHeap::toSortedList);
+    }
+
+    /**
+     * 按 comparator 排序后的最后 k 个元素（从大到小）
+     */
+    public static <T> Collector<T, ?, List<T>> greatest(int k, Comparator<? super T> comparator) {
+        return least(k, comparator.reversed());
+    }
+
+    /**
+     * int 键最小的 k 个元素（从小到大），键使用原始类型保存和比较
+     */
+    public static <T> Collector<T, ?, List<T>> leastByInt(int k, ToIntFunction<? super T> keyMapper) {
+        checkK(k);
+        return Collector.<T, BoundedHeap<T>, List<T>>of(
+                () -> new BoundedHeap<>(k, null, false),
+                (h, t) -> h.offer(t, keyMapper.applyAsInt(t)),
+                BoundedHeap::merge,
+                BoundedHeap::toSortedList);
+    }
+
+    /**
+     * int 键最大的 k 个元素（从大到小）
+     */
+    public static <T> Collector<T, ?, List<T>> greatestByInt(int k, ToIntFunction<? super T> keyMapper) {
+        checkK(k);
+        return Collector.<T, BoundedHeap<T>, List<T>>of(
+                () -> new BoundedHeap<>(k, null, true),
+                (h, t) -> h.offer(t, keyMapper.applyAsInt(t)),
+                BoundedHeap::merge,
+                BoundedHeap::toSortedList);
+    }
+
+    /**
+     * 热量最低的 k 道菜
+     */
+    public static Collector<Dish, ?, List<Dish>> lowestCalories(int k) {
+        return leastByInt(k, Dish::getCalories);
+    }
+
+    /**
+     * 热量最高的 k 道菜
+     */
+    public static Collector<Dish, ?, List<Dish>> highestCalories(int k) {
+        return greatestByInt(k, Dish::getCalories);
+    }
+
+    /**
+     * 交易额最低的 k 笔交易
+     */
+    public static Collector<Transaction, ?, List<Transaction>> lowestValue(int k) {
+        return leastByInt(k, Transaction::getValue);
+    }
+
+    /**
+     * 交易额最高的 k 笔交易
+     */
+    public static Collector<Transaction, ?, List<Transaction>> highestValue(int k) {
+        return greatestByInt(k, Transaction::getValue);
+    }
+
+    private static void checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    /**
+     * 容量为 k 的堆，堆顶为最差的元素
+     * 每个元素带一个序号，键相同时序号小（出现得早）的元素更好，以此保证与 sorted().limit() 相同的稳定顺序。
+     * 合并时右侧分片的序号整体加上左侧分片已经看过的元素个数，序号在合并后仍然保持流中的先后关系。
+     */
+    private static final class BoundedHeap<T> {
+
+        private final int capacity;
+        private final Comparator<? super T> comparator;
+        private final boolean descending;
+        private Object[] elements;
+        private int[] keys;
+        private long[] seqs;
+        private int size;
+        private long seen;
+
+        BoundedHeap(int capacity, Comparator<? super T> comparator, boolean descending) {
+            this.capacity = capacity;
+            this.comparator = comparator;
+            this.descending = descending;
+            int initial = Math.min(capacity, 16);
+            this.elements = new Object[initial];
+            this.keys = new int[initial];
+            this.seqs = new long[initial];
+        }
+
+        void offer(T t, int key) {
+            insert(t, key, seen++);
+        }
+
+        BoundedHeap<T> merge(BoundedHeap<T> other) {
+            long offset = seen;
+            for (int i = 0; i < other.size; i++) {
+                insert(other.element(i), other.keys[i], other.seqs[i] + offset);
+            }
+            seen += other.seen;
+            return this;
+        }
+
+        /**
+         * 依次取出堆顶（最差的元素）从后往前填充，得到排好序的结果；调用后堆不再可用
+         */
+        List<T> toSortedList() {
+            Object[] sorted = new Object[size];
+            while (size > 0) {
+                sorted[size - 1] = elements[0];
+                size--;
+                elements[0] = elements[size];
+                keys[0] = keys[size];
+                seqs[0] = seqs[size];
+                elements[size] = null;
+                siftDown(0);
+            }
+            @SuppressWarnings("unchecked")
+            List<T> result = (List<T>) Arrays.asList(sorted);
+            return Collections.unmodifiableList(result);
+        }
+
+        private void insert(T t, int key, long seq) {
+            if (size < capacity) {
+                if (size == elements.length) {
+                    grow();
+                }
+                elements[size] = t;
+                keys[size] = key;
+                seqs[size] = seq;
+                siftUp(size++);
+            } else if (capacity > 0 && compare(t, key, seq, 0) < 0) {
+                elements[0] = t;
+                keys[0] = key;
+                seqs[0] = seq;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * 小于 0 表示 i 比 j 更好（排在前面）
+         */
+        private int compare(int i, int j) {
+            return compare(element(i), keys[i], seqs[i], j);
+        }
+
+        private int compare(T t, int key, long seq, int j) {
+            int c;
+            if (comparator != null) {
+                c = comparator.compare(t, element(j));
+            } else {
+                c = descending ? Integer.compare(keys[j], key) : Integer.compare(key, keys[j]);
+            }
+            return c != 0 ? c : Long.compare(seq, seqs[j]);
+        }
+
+        /**
+         * 最差的元素上浮到堆顶
+         */
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (compare(i, parent) <= 0) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int worst = left;
+                int right = left + 1;
+                if (right < size && compare(right, left) > 0) {
+                    worst = right;
+                }
+                if (compare(worst, i) <= 0) {
+                    break;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void grow() {
+            int newLength = (int) Math.min(capacity, elements.length * 2L);
+            elements = Arrays.copyOf(elements, newLength);
+            keys = Arrays.copyOf(keys, newLength);
+            seqs = Arrays.copyOf(seqs, newLength);
+        }
+
+        private void swap(int i, int j) {
+            Object e = elements[i];
+            elements[i] = elements[j];
+            elements[j] = e;
+            int k = keys[i];
+            keys[i] = keys[j];
+            keys[j] = k;
+            long s = seqs[i];
+            seqs[i] = seqs[j];
+            seqs[j] = s;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T element(int i) {
+            return (T) elements[i];
+        }
+    }
+}
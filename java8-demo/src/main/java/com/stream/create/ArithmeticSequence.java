@@ -0,0 +1,99 @@
+package com.stream.create;
+
+import java.math.BigInteger;
+import java.util.stream.LongStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-08-01
+ * 等差数列 start, start + step, start + 2 * step, ...
+ * 第 n 项直接用 start + n * step 计算，不需要从头迭代，所以生成的流大小精确，可以按下标均匀拆分并行处理，
+ * 用来代替 Stream.iterate(0, n -> n + 2)。计算结果超出 long 的范围时抛出 ArithmeticException，中间结果溢出不影响。
+ */
+public final class ArithmeticSequence {
+
+    private final long start;
+    private final long step;
+
+    private ArithmeticSequence(long start, long step) {
+        this.start = start;
+        this.step = step;
+    }
+
+    public static ArithmeticSequence of(long start, long step) {
+        return new ArithmeticSequence(start, step);
+    }
+
+    public long start() {
+        return start;
+    }
+
+    public long step() {
+        return step;
+    }
+
+    /**
+     * 第 n 项，从 0 开始
+     */
+    public long nth(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n: " + n);
+        }
+        long term = start + n * step;
+        if (step == (int) step && n <= Integer.MAX_VALUE) {
+            // n * step 不会溢出，只需要检查加法
+            if (((start ^ term) & (n * step ^ term)) < 0) {
+                throw new ArithmeticException("long overflow");
+            }
+            return term;
+        }
+        // n * step 可能溢出而结果没有溢出，用 BigInteger 精确判断
+        return BigInteger.valueOf(step).multiply(BigInteger.valueOf(n)).add(BigInteger.valueOf(start)).longValueExact();
+    }
+
+    /**
+     * 前 count 项
+     */
+    public LongStream stream(long count) {
+        return stream(0, count);
+    }
+
+    /**
+     * 第 [from, to) 项
+     */
+    public LongStream stream(long from, long to) {
+        if (from < 0 || from > to) {
+            throw new IllegalArgumentException("from: " + from + ", to: " + to);
+        }
+        if (from < to) {
+            // 首尾两项不溢出，中间的项也不会溢出
+            nth(from);
+            nth(to - 1);
+        }
+        return LongStream.range(from, to).map(n -> start + n * step);
+    }
+
+    /**
+     * 前 count 项的和，(首项 + 末项) * 项数 / 2，只有和本身超出 long 的范围时才抛出 ArithmeticException
+     */
+    public long sum(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count: " + count);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long last = nth(count - 1);
+        if ((count & 1) == 1) {
+            // 项数为奇数时 (首项 + 末项) / 2 就是中间一项，不需要先相加
+            return Math.multiplyExact(count, nth(count >> 1));
+        }
+        // 项数为偶数时 |和| >= |首项 + 末项|，相加溢出说明和也溢出
+        return Math.multiplyExact(count >> 1, Math.addExact(start, last));
+    }
+
+    @Override
+    public String toString() {
+        return "ArithmeticSequence{start=" + start + ", step=" + step + '}';
+    }
+}
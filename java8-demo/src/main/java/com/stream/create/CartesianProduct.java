@@ -0,0 +1,343 @@
+package com.stream.create;
+
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-31
+ * 若干个 int 数组或区间的笛卡尔积，只保存各维的数组或区间，不生成组合本身，内存占用与组合个数无关
+ * 组合按线性下标 [0, size()) 排列，最后一维变化最快，与嵌套 flatMap 的顺序相同；
+ * 并行时按线性下标对半拆分，每一半的组合个数相差不超过 1，不受各维长度的影响。
+ * 二维时组合以两个 int 交给 PairConsumer，或打包成 long 通过 pairs() 流出；
+ * 多维时交给 TupleConsumer，同一个线程复用同一个 int[]，不为每个组合创建对象。
+ */
+public final class CartesianProduct {
+
+    /**
+     * 接收二维组合中的一对值
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second);
+    }
+
+    /**
+     * 接收一个组合，tuple[d] 为第 d 维的值；数组会被复用，回调返回后不要保留
+     */
+    @FunctionalInterface
+    public interface TupleConsumer {
+        void accept(int[] tuple);
+    }
+
+    /**
+     * 叶子任务的最小组合个数，小于这个数时拆分的调度开销会超过收益
+     */
+    static final int MIN_LEAF_SIZE = 1 << 13;
+
+    /**
+     * 第 d 维的值，为 null 时第 d 维是从 starts[d] 开始的区间
+     */
+    private final int[][] values;
+    private final int[] starts;
+    private final int[] lengths;
+    private final long size;
+
+    private CartesianProduct(int[][] values, int[] starts, int[] lengths) {
+        if (lengths.length == 0) {
+            throw new IllegalArgumentException("at least one dimension is required");
+        }
+        this.values = values;
+        this.starts = starts;
+        this.lengths = lengths;
+        long size = 1;
+        try {
+            for (int length : lengths) {
+                size = Math.multiplyExact(size, (long) length);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("too many combinations");
+        }
+        this.size = size;
+    }
+
+    /**
+     * 若干个数组的笛卡尔积，数组会被复制
+     */
+    public static CartesianProduct of(int[]... dimensions) {
+        int[][] values = new int[dimensions.length][];
+        int[] lengths = new int[dimensions.length];
+        for (int d = 0; d < dimensions.length; d++) {
+            values[d] = dimensions[d].clone();
+            lengths[d] = values[d].length;
+        }
+        return new CartesianProduct(values, new int[dimensions.length], lengths);
+    }
+
+    /**
+     * [firstFrom, firstTo) 与 [secondFrom, secondTo) 的笛卡尔积
+     */
+    public static CartesianProduct range(int firstFrom, int firstTo, int secondFrom, int secondTo) {
+        return range(new int[]{firstFrom, secondFrom}, new int[]{firstTo, secondTo});
+    }
+
+    /**
+     * 多个区间的笛卡尔积，第 d 维为 [from[d], to[d])
+     */
+    public static CartesianProduct range(int[] from, int[] to) {
+        if (from.length != to.length) {
+            throw new IllegalArgumentException("from: " + from.length + " dimensions, to: " + to.length);
+        }
+        int[] lengths = new int[from.length];
+        for (int d = 0; d < from.length; d++) {
+            long length = (long) to[d] - from[d];
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("dimension " + d + " is too long: " + length);
+            }
+            lengths[d] = (int) Math.max(0, length);
+        }
+        return new CartesianProduct(new int[from.length][], from.clone(), lengths);
+    }
+
+    public int dimensions() {
+        return lengths.length;
+    }
+
+    /**
+     * 组合的个数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 线性下标为 index 的组合中第 dimension 维的值
+     */
+    public int get(long index, int dimension) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        for (int d = lengths.length - 1; d > dimension; d--) {
+            index /= lengths[d];
+        }
+        return value(dimension, (int) (index % lengths[dimension]));
+    }
+
+    public void forEach(PairConsumer sink) {
+        checkPairs();
+        forEachPair(0, size, sink);
+    }
+
+    public void forEach(TupleConsumer sink) {
+        forEachTuple(0, size, sink);
+    }
+
+    /**
+     * 在公共 ForkJoinPool 中并行处理，sink 会被多个线程同时调用，需要自己保证线程安全
+     */
+    public void parallelForEach(PairConsumer sink) {
+        checkPairs();
+        invoke((from, to) -> forEachPair(from, to, sink));
+    }
+
+    /**
+     * 在公共 ForkJoinPool 中并行处理，每个叶子任务使用自己的 tuple 数组
+     */
+    public void parallelForEach(TupleConsumer sink) {
+        invoke((from, to) -> forEachTuple(from, to, sink));
+    }
+
+    /**
+     * 二维组合打包成 long 的流，用 first()、second() 解包；大小精确，可以调用 parallel() 均匀拆分
+     */
+    public LongStream pairs() {
+        checkPairs();
+        return StreamSupport.longStream(new PairSpliterator(0, size), false);
+    }
+
+    public static int first(long pair) {
+        return (int) (pair >> 32);
+    }
+
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    static long pack(int first, int second) {
+        return (long) first << 32 | (second & 0xFFFFFFFFL);
+    }
+
+    private void checkPairs() {
+        if (lengths.length != 2) {
+            throw new IllegalStateException("pairs require 2 dimensions, has " + lengths.length);
+        }
+    }
+
+    private int value(int dimension, int position) {
+        int[] dimensionValues = values[dimension];
+        return dimensionValues == null ? starts[dimension] + position : dimensionValues[position];
+    }
+
+    /**
+     * 处理线性下标在 [from, to) 内的二维组合，按行循环，行内不做除法
+     */
+    private void forEachPair(long from, long to, PairConsumer sink) {
+        if (from >= to) {
+            return;
+        }
+        int width = lengths[1];
+        int[] seconds = values[1];
+        int secondStart = starts[1];
+        long row = from / width;
+        int column = (int) (from % width);
+        long remaining = to - from;
+        while (remaining > 0) {
+            int end = (int) Math.min(width, column + remaining);
+            int first = value(0, (int) row);
+            if (seconds == null) {
+                for (int j = column; j < end; j++) {
+                    sink.accept(first, secondStart + j);
+                }
+            } else {
+                for (int j = column; j < end; j++) {
+                    sink.accept(first, seconds[j]);
+                }
+            }
+            remaining -= end - column;
+            column = 0;
+            row++;
+        }
+    }
+
+    /**
+     * 处理线性下标在 [from, to) 内的组合，像里程表一样从最后一维开始进位，只更新变化的维
+     */
+    private void forEachTuple(long from, long to, TupleConsumer sink) {
+        if (from >= to) {
+            return;
+        }
+        int dimensions = lengths.length;
+        int[] positions = new int[dimensions];
+        int[] tuple = new int[dimensions];
+        long index = from;
+        for (int d = dimensions - 1; d >= 0; d--) {
+            positions[d] = (int) (index % lengths[d]);
+            index /= lengths[d];
+            tuple[d] = value(d, positions[d]);
+        }
+        int last = dimensions - 1;
+        for (long remaining = to - from; remaining > 0; remaining--) {
+            sink.accept(tuple);
+            int d = last;
+            while (d >= 0 && ++positions[d] == lengths[d]) {
+                positions[d] = 0;
+                tuple[d] = value(d, 0);
+                d--;
+            }
+            if (d >= 0) {
+                tuple[d] = value(d, positions[d]);
+            }
+        }
+    }
+
+    /**
+     * 处理线性下标在 [from, to) 内的组合
+     */
+    @FunctionalInterface
+    private interface RangeKernel {
+        void run(long from, long to);
+    }
+
+    private void invoke(RangeKernel kernel) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long leafSize = Math.max(MIN_LEAF_SIZE, size / (parallelism << 2));
+        ForkJoinPool.commonPool().invoke(new RangeTask(kernel, 0, size, leafSize));
+    }
+
+    /**
+     * fork-join 任务，按线性下标区间对半拆分
+     */
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeKernel kernel;
+        private final long from;
+        private final long to;
+        private final long leafSize;
+
+        RangeTask(RangeKernel kernel, long from, long to, long leafSize) {
+            this.kernel = kernel;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                kernel.run(from, to);
+                return;
+            }
+            long mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(kernel, from, mid, leafSize), new RangeTask(kernel, mid, to, leafSize));
+        }
+    }
+
+    /**
+     * 按线性下标区间对半拆分的二维组合迭代器，拆分出去的是前一半，保持顺序
+     */
+    private final class PairSpliterator implements Spliterator.OfLong {
+
+        private long index;
+        private final long fence;
+
+        PairSpliterator(long index, long fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            int width = lengths[1];
+            action.accept(pack(value(0, (int) (index / width)), value(1, (int) (index % width))));
+            index++;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            long from = index;
+            index = fence;
+            forEachPair(from, fence, (first, second) -> action.accept(pack(first, second)));
+        }
+
+        @Override
+        public PairSpliterator trySplit() {
+            long mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            PairSpliterator prefix = new PairSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
@@ -32,12 +32,20 @@ public class CreateStream {
 //        Stream.iterate(new int[]{0,1}, t -> new int[]{t[1],t[0]+t[1]})
 //                .limit(20)
 //                .map(t -> t[0])
+//                .forEach(System.out::println);
+        //等差数列和斐波那契数可以直接算出第n项，流的大小确定，parallel()时可以均匀拆分，也不为每一步创建数组
+//        ArithmeticSequence.of(0,2).stream(10)
+//                .forEach(System.out::println);
+//        Fibonacci.stream(0,20)
 //                .forEach(System.out::println);
 
         //3.2 generate生成流
         Stream.generate(Math::random)
                 .limit(10)
                 .forEach(System.out::println);
+        //固定种子的随机数流，结果可以重现，并行时不争用同一个 Random
+//        RandomStreams.seeded(42).doubles(10)
+//                .forEach(System.out::println);
     }
 
 }
@@ -0,0 +1,269 @@
+package com.stream.create;
+
+import java.math.BigInteger;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author zyting
+ * @sinne 2020-08-01
+ * 斐波那契数列 F(0) = 0, F(1) = 1, F(n) = F(n - 1) + F(n - 2)
+ * 第 n 项用快速倍增法计算，只需要 O(log n) 次乘法：
+ * F(2k) = F(k) * (2F(k + 1) - F(k))，F(2k + 1) = F(k)² + F(k + 1)²
+ * 流按下标区间对半拆分，每一段开始时先用快速倍增跳到自己的第一项，之后只做加法，
+ * 用两个字段保存相邻的两项，不像 Stream.iterate(new int[]{0,1}, ...) 那样每一步创建数组。
+ * long 版本最多到 F(92)，再往后用 BigInteger 版本。
+ */
+public final class Fibonacci {
+
+    /**
+     * long 能表示的最大项的下标，F(92) = 7540113804746346429
+     */
+    public static final int MAX_LONG_INDEX = 92;
+
+    private Fibonacci() {
+    }
+
+    /**
+     * 第 n 项，n 不超过 MAX_LONG_INDEX
+     */
+    public static long nth(int n) {
+        if (n < 0 || n > MAX_LONG_INDEX) {
+            throw new IllegalArgumentException("n: " + n + ", max: " + MAX_LONG_INDEX);
+        }
+        return pair(n)[0];
+    }
+
+    /**
+     * 第 n 项
+     */
+    public static BigInteger nthBig(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n: " + n);
+        }
+        return bigPair(n)[0];
+    }
+
+    /**
+     * F(from) 到 F(to - 1)，to 不超过 MAX_LONG_INDEX + 1
+     */
+    public static LongStream stream(int from, int to) {
+        checkRange(from, to, MAX_LONG_INDEX + 1);
+        return StreamSupport.longStream(new LongSpliterator(from, to), false);
+    }
+
+    /**
+     * F(from) 到 F(to - 1)
+     */
+    public static Stream<BigInteger> bigStream(int from, int to) {
+        checkRange(from, to, Integer.MAX_VALUE);
+        return StreamSupport.stream(new BigSpliterator(from, to), false);
+    }
+
+    private static void checkRange(int from, int to, int max) {
+        if (from < 0 || from > to || to > max) {
+            throw new IllegalArgumentException("from: " + from + ", to: " + to + ", max: " + max);
+        }
+    }
+
+    /**
+     * {F(n), F(n + 1)}；long 的运算按 2^64 取模，F(n + 1) 溢出时 F(n) 仍然正确
+     */
+    static long[] pair(int n) {
+        long a = 0;
+        long b = 1;
+        for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+            long c = a * (2 * b - a);
+            long d = a * a + b * b;
+            if ((n & bit) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c + d;
+            }
+        }
+        return new long[]{a, b};
+    }
+
+    static BigInteger[] bigPair(int n) {
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+            BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+            BigInteger d = a.multiply(a).add(b.multiply(b));
+            if ((n & bit) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c.add(d);
+            }
+        }
+        return new BigInteger[]{a, b};
+    }
+
+    /**
+     * 下标区间 [index, fence) 内的项；遍历时才跳到 F(index)，拆分本身不做计算，拆分后剩下的后一半重新定位
+     */
+    private static final class LongSpliterator implements Spliterator.OfLong {
+
+        private int index;
+        private final int fence;
+        private boolean seeded;
+        private long current;
+        private long next;
+
+        LongSpliterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        private void seed() {
+            if (!seeded) {
+                long[] pair = pair(index);
+                current = pair[0];
+                next = pair[1];
+                seeded = true;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            seed();
+            long value = current;
+            current = next;
+            next += value;
+            index++;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (index >= fence) {
+                return;
+            }
+            seed();
+            long a = current;
+            long b = next;
+            for (int i = index; i < fence; i++) {
+                action.accept(a);
+                long c = a + b;
+                a = b;
+                b = c;
+            }
+            index = fence;
+            current = a;
+            next = b;
+        }
+
+        @Override
+        public LongSpliterator trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            LongSpliterator prefix = new LongSpliterator(index, mid);
+            index = mid;
+            seeded = false;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+
+    /**
+     * BigInteger 版本，每段只在开头做一次快速倍增
+     */
+    private static final class BigSpliterator implements Spliterator<BigInteger> {
+
+        private int index;
+        private final int fence;
+        private BigInteger current;
+        private BigInteger next;
+
+        BigSpliterator(int index, int fence) {
+            this.index = index;
+            this.fence = fence;
+        }
+
+        private void seed() {
+            if (current == null) {
+                BigInteger[] pair = bigPair(index);
+                current = pair[0];
+                next = pair[1];
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BigInteger> action) {
+            if (index >= fence) {
+                return false;
+            }
+            seed();
+            BigInteger value = current;
+            current = next;
+            next = next.add(value);
+            index++;
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super BigInteger> action) {
+            if (index >= fence) {
+                return;
+            }
+            seed();
+            BigInteger a = current;
+            BigInteger b = next;
+            for (int i = index; i < fence; i++) {
+                action.accept(a);
+                BigInteger c = a.add(b);
+                a = b;
+                b = c;
+            }
+            index = fence;
+            current = a;
+            next = b;
+        }
+
+        @Override
+        public BigSpliterator trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            BigSpliterator prefix = new BigSpliterator(index, mid);
+            index = mid;
+            current = null;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+    }
+}
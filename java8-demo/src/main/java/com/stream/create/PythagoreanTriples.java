@@ -0,0 +1,364 @@
+package com.stream.create;
+
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-30
+ * 勾股数生成器，枚举两条直角边都不超过 bound 的所有勾股数 (a, b, c)，a <= b
+ * 使用欧几里得公式：m > n > 0，m、n 互质且一奇一偶时，(m² - n², 2mn, m² + n²) 是本原勾股数，
+ * 所有勾股数都是某个本原勾股数的 k 倍。每个勾股数恰好生成一次，不需要对候选的 (a, b) 开方判断，
+ * 工作量与输出的个数成正比，而不是 bound²。
+ * 并行时按 m 的区间拆分；m 越小产生的勾股数越多（大约与 1/m 成正比），所以按几何平均数对半拆分，
+ * 只剩一个本原勾股数时再按倍数 k 拆分，(3, 4, 5) 这样的大头也能分给多个线程。
+ * 输出的顺序不固定，需要时可以对 stream() 的结果排序，打包后的 long 按 a、b 的顺序排列。
+ */
+public final class PythagoreanTriples {
+
+    /**
+     * 接收一个勾股数，不创建对象
+     */
+    @FunctionalInterface
+    public interface TripleConsumer {
+        void accept(int a, int b, int c);
+    }
+
+    /**
+     * forEach / parallelForEach 支持的最大 bound，斜边和累加时都不会溢出
+     */
+    public static final int MAX_BOUND = (1 << 30) - 1;
+    /**
+     * stream() 支持的最大 bound，a、b 各占 20 位，c 占 21 位，打包在一个 long 中
+     */
+    public static final int MAX_PACKED_BOUND = (1 << 20) - 1;
+
+    /**
+     * 叶子任务的最少勾股数个数，小于这个数时拆分的调度开销会超过收益
+     */
+    static final int MIN_LEAF_SIZE = 1 << 13;
+    /**
+     * 单个本原勾股数的倍数少于这个数时不再按 k 拆分
+     */
+    private static final int MIN_SPLIT_MULTIPLES = 1 << 10;
+    /**
+     * m 在 [x, y) 内产生的勾股数约为 WEIGHT * bound * ln(y / x)，只用于估算大小
+     */
+    private static final double WEIGHT = 0.36;
+
+    private PythagoreanTriples() {
+    }
+
+    /**
+     * 顺序枚举，返回勾股数的个数
+     */
+    public static long forEach(int bound, TripleConsumer sink) {
+        return new TripleSpliterator(bound).forEachTriple(sink);
+    }
+
+    /**
+     * 在公共 ForkJoinPool 中并行枚举，sink 会被多个线程同时调用，需要自己保证线程安全，返回勾股数的个数
+     */
+    public static long parallelForEach(int bound, TripleConsumer sink) {
+        TripleSpliterator spliterator = new TripleSpliterator(bound);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long threshold = Math.max(MIN_LEAF_SIZE, spliterator.estimateSize() / (parallelism << 2));
+        return ForkJoinPool.commonPool().invoke(new TripleTask(spliterator, sink, threshold));
+    }
+
+    /**
+     * 勾股数的个数，只枚举本原勾股数，每个本原勾股数的倍数直接相除得到
+     */
+    public static long count(int bound) {
+        checkBound(bound, MAX_BOUND);
+        long count = 0;
+        int maxM = maxM(bound);
+        for (int m = 2; m <= maxM; m++) {
+            long mm = (long) m * m;
+            int nMax = maxN(m, bound);
+            for (int n = minN(m, bound); n <= nMax; n += 2) {
+                if (gcd(m, n) == 1) {
+                    count += bound / Math.max(mm - (long) n * n, 2L * m * n);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 打包成 long 的勾股数流，用 a()、b()、c() 解包；可以调用 parallel() 并行处理，不装箱
+     */
+    public static LongStream stream(int bound) {
+        checkBound(bound, MAX_PACKED_BOUND);
+        return StreamSupport.longStream(new TripleSpliterator(bound), false);
+    }
+
+    public static int a(long triple) {
+        return (int) (triple >>> 41);
+    }
+
+    public static int b(long triple) {
+        return (int) (triple >>> 21) & 0xFFFFF;
+    }
+
+    public static int c(long triple) {
+        return (int) triple & 0x1FFFFF;
+    }
+
+    static long pack(int a, int b, int c) {
+        return (long) a << 41 | (long) b << 21 | c;
+    }
+
+    private static void checkBound(int bound, int max) {
+        if (bound < 0 || bound > max) {
+            throw new IllegalArgumentException("bound: " + bound + ", max: " + max);
+        }
+    }
+
+    /**
+     * 两条直角边相等时 m 最大：2(√2 - 1)m² <= bound
+     */
+    private static int maxM(int bound) {
+        return (int) Math.sqrt(bound * 1.2072) + 1;
+    }
+
+    /**
+     * m² - n² <= bound 的最小 n，且与 m 奇偶性不同
+     */
+    private static int minN(int m, int bound) {
+        long excess = (long) m * m - bound;
+        int n = 1;
+        if (excess > 1) {
+            long root = (long) Math.sqrt((double) excess);
+            while (root * root > excess) {
+                root--;
+            }
+            while (root * root < excess) {
+                root++;
+            }
+            n = (int) root;
+        }
+        return ((m - n) & 1) == 0 ? n + 1 : n;
+    }
+
+    /**
+     * 2mn <= bound 且 n < m 的最大 n
+     */
+    private static int maxN(int m, int bound) {
+        return Math.min(m - 1, bound / (m << 1));
+    }
+
+    private static int gcd(int x, int y) {
+        while (y != 0) {
+            int r = x % y;
+            x = y;
+            y = r;
+        }
+        return x;
+    }
+
+    /**
+     * 按 m 的区间和 k 的区间拆分的勾股数迭代器
+     * 当前状态：正在处理的 m，下一个候选的 n，当前本原勾股数 (lo, hi, z) 和最近一次输出的倍数 (a, b, c)；
+     * hi 为 0 表示当前没有本原勾股数。当前本原勾股数的较长直角边不超过 bLimit 的倍数由这个迭代器输出。
+     */
+    private static final class TripleSpliterator implements Spliterator.OfLong {
+
+        private final int bound;
+        private int m;
+        private int to;
+        private int n;
+        private int nMax;
+        private int lo;
+        private int hi;
+        private int z;
+        private int a;
+        private int b;
+        private int c;
+        private int bLimit;
+
+        TripleSpliterator(int bound) {
+            this(bound, 2, maxM(checked(bound)) + 1);
+        }
+
+        /**
+         * 负责 m 在 [from, to) 内的勾股数
+         */
+        private TripleSpliterator(int bound, int from, int to) {
+            this.bound = bound;
+            this.m = from - 1;
+            this.to = to;
+            this.n = 1;
+            this.nMax = 0;
+        }
+
+        private static int checked(int bound) {
+            checkBound(bound, MAX_BOUND);
+            return bound;
+        }
+
+        /**
+         * 移动到下一个本原勾股数，没有了返回 false
+         */
+        private boolean nextPrimitive() {
+            while (true) {
+                while (n > nMax) {
+                    if (m + 1 >= to) {
+                        return false;
+                    }
+                    m++;
+                    n = minN(m, bound);
+                    nMax = maxN(m, bound);
+                }
+                int current = n;
+                n += 2;
+                if (gcd(m, current) == 1) {
+                    int x = (int) ((long) m * m - (long) current * current);
+                    int y = 2 * m * current;
+                    lo = Math.min(x, y);
+                    hi = Math.max(x, y);
+                    z = m * m + current * current;
+                    a = 0;
+                    b = 0;
+                    c = 0;
+                    bLimit = bound;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 把剩下的勾股数交给 sink，返回个数
+         */
+        long forEachTriple(TripleConsumer sink) {
+            long count = 0;
+            do {
+                if (hi != 0) {
+                    int lo = this.lo;
+                    int hi = this.hi;
+                    int z = this.z;
+                    int a = this.a;
+                    int b = this.b;
+                    int c = this.c;
+                    int limit = bLimit - hi;
+                    while (b <= limit) {
+                        a += lo;
+                        b += hi;
+                        c += z;
+                        sink.accept(a, b, c);
+                        count++;
+                    }
+                    this.hi = 0;
+                }
+            } while (nextPrimitive());
+            return count;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            do {
+                if (hi != 0) {
+                    if (b <= bLimit - hi) {
+                        a += lo;
+                        b += hi;
+                        c += z;
+                        action.accept(pack(a, b, c));
+                        return true;
+                    }
+                    hi = 0;
+                }
+            } while (nextPrimitive());
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            forEachTriple((a, b, c) -> action.accept(pack(a, b, c)));
+        }
+
+        /**
+         * 优先把还没开始的 m 区间按几何平均数拆出后一半；只剩当前的 m 时，把当前本原勾股数的后一半倍数拆出去
+         */
+        @Override
+        public TripleSpliterator trySplit() {
+            int from = m + 1;
+            // 只剩一个 m 时，自己手上还有当前 m 的工作才值得拆出去
+            if (to - from > 1 || (from < to && (hi != 0 || n <= nMax))) {
+                int mid = from;
+                if (to - from > 1) {
+                    mid = Math.max(from + 1, Math.min(to - 1, (int) Math.sqrt((double) from * to)));
+                }
+                TripleSpliterator split = new TripleSpliterator(bound, mid, to);
+                to = mid;
+                return split;
+            }
+            // 还没取出本原勾股数时先取出来，只是定位，不会输出元素
+            if (hi != 0 || nextPrimitive()) {
+                int remaining = (bLimit - b) / hi;
+                if (remaining >= MIN_SPLIT_MULTIPLES << 1) {
+                    int half = remaining >>> 1;
+                    TripleSpliterator split = new TripleSpliterator(bound, to, to);
+                    split.lo = lo;
+                    split.hi = hi;
+                    split.z = z;
+                    split.a = a + half * lo;
+                    split.b = b + half * hi;
+                    split.c = c + half * z;
+                    split.bLimit = bLimit;
+                    bLimit = split.b;
+                    return split;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long current = hi == 0 ? 0 : (bLimit - b) / hi;
+            int from = m + 1;
+            if (from < to) {
+                current += (long) (WEIGHT * bound * Math.log((double) to / from)) + 1;
+            }
+            return current;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL | IMMUTABLE;
+        }
+    }
+
+    /**
+     * fork-join 任务，估算大小超过阈值时拆分，叶子直接调用 sink
+     */
+    private static final class TripleTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TripleSpliterator spliterator;
+        private final TripleConsumer sink;
+        private final long threshold;
+
+        TripleTask(TripleSpliterator spliterator, TripleConsumer sink, long threshold) {
+            this.spliterator = spliterator;
+            this.sink = sink;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Long compute() {
+            TripleSpliterator split;
+            if (spliterator.estimateSize() > threshold && (split = spliterator.trySplit()) != null) {
+                TripleTask other = new TripleTask(split, sink, threshold);
+                other.fork();
+                long count = new TripleTask(spliterator, sink, threshold).compute();
+                return count + other.join();
+            }
+            return spliterator.forEachTriple(sink);
+        }
+    }
+}
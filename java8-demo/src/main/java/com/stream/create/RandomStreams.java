@@ -0,0 +1,169 @@
+package com.stream.create;
+
+import java.util.SplittableRandom;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-08-02
+ * 可重现、可并行的随机数流，用来代替 Stream.generate(Math::random)
+ * 使用与 SplittableRandom 相同的 SplitMix64 算法：第 i 个数只由种子和下标决定，
+ * 即 mix64(seed + (i + 1) * GAMMA)，所以每个拆分出来的段可以直接跳到自己的起点独立生成，
+ * 不共享任何状态，没有 Math.random 那样对同一个 Random 的 CAS 竞争；
+ * 同一个种子不论顺序还是并行、拆成几段，每个位置上的数都相同。
+ * longs、ints、doubles 与 new SplittableRandom(seed) 依次调用 nextLong、nextInt、nextDouble 的结果相同。
+ * 有界的整数用乘法映射到区间内（取随机数与区间长度乘积的高位），不做拒绝采样，偏差不超过 区间长度 / 2^32（int）或 区间长度 / 2^64（long）。
+ * 不适合用于密码学。
+ */
+public final class RandomStreams {
+
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private final long seed;
+
+    private RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 固定种子，结果可以重现
+     */
+    public static RandomStreams seeded(long seed) {
+        return new RandomStreams(seed);
+    }
+
+    /**
+     * 随机种子，用 seed() 取出后可以重现这次的结果
+     */
+    public static RandomStreams create() {
+        return new RandomStreams(new SplittableRandom().nextLong());
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * 第 index 个 long，直接计算，不需要生成前面的数
+     */
+    public long longAt(long index) {
+        return mix64(seed + (index + 1) * GAMMA);
+    }
+
+    public LongStream longs(long size) {
+        return indices(size).map(this::longAt);
+    }
+
+    /**
+     * [origin, bound) 内的 long
+     */
+    public LongStream longs(long size, long origin, long bound) {
+        checkRange(origin < bound);
+        // 区间长度超出 long 的范围时按无符号数处理，结果仍然落在 [origin, bound) 内
+        long range = bound - origin;
+        return indices(size).map(i -> origin + multiplyHighUnsigned(longAt(i), range));
+    }
+
+    public IntStream ints(long size) {
+        return indices(size).mapToInt(i -> mix32(seed + (i + 1) * GAMMA));
+    }
+
+    /**
+     * [origin, bound) 内的 int
+     */
+    public IntStream ints(long size, int origin, int bound) {
+        checkRange(origin < bound);
+        long range = (long) bound - origin;
+        return indices(size).mapToInt(i -> origin + (int) (((longAt(i) >>> 32) * range) >>> 32));
+    }
+
+    /**
+     * [0, 1) 内的 double
+     */
+    public DoubleStream doubles(long size) {
+        return indices(size).mapToDouble(this::unit);
+    }
+
+    /**
+     * [origin, bound) 内的 double
+     */
+    public DoubleStream doubles(long size, double origin, double bound) {
+        checkRange(origin < bound && bound - origin < Double.POSITIVE_INFINITY);
+        double range = bound - origin;
+        return indices(size).mapToDouble(i -> {
+            double value = origin + unit(i) * range;
+            return value < bound ? value : Math.nextDown(bound);
+        });
+    }
+
+    /**
+     * 正态分布，Box-Muller 变换，每个数占用两个位置
+     */
+    public DoubleStream gaussians(long size, double mean, double stddev) {
+        if (stddev < 0) {
+            throw new IllegalArgumentException("stddev: " + stddev);
+        }
+        return indices(size).mapToDouble(i -> {
+            double radius = Math.sqrt(-2 * Math.log(1 - unit(i << 1)));
+            return mean + stddev * radius * Math.cos(2 * Math.PI * unit((i << 1) + 1));
+        });
+    }
+
+    /**
+     * 指数分布，反函数法
+     */
+    public DoubleStream exponentials(long size, double mean) {
+        if (mean <= 0) {
+            throw new IllegalArgumentException("mean: " + mean);
+        }
+        return indices(size).mapToDouble(i -> -mean * Math.log(1 - unit(i)));
+    }
+
+    private double unit(long index) {
+        return (longAt(index) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * 下标流大小精确，并行时按下标区间均匀拆分
+     */
+    private static LongStream indices(long size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must be non-negative");
+        }
+        return LongStream.range(0, size);
+    }
+
+    private static void checkRange(boolean valid) {
+        if (!valid) {
+            throw new IllegalArgumentException("bound must be greater than origin");
+        }
+    }
+
+    /**
+     * x * y 的 128 位无符号乘积的高 64 位，即 Math.multiplyHigh 的无符号版本（Java 8 没有）
+     */
+    static long multiplyHighUnsigned(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL;
+        long x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL;
+        long y1 = y >>> 32;
+        long p01 = x0 * y1;
+        long p10 = x1 * y0;
+        long middle = ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL) + (p10 & 0xFFFFFFFFL);
+        return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
@@ -0,0 +1,213 @@
+package com.stream.primitive;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-30
+ * 开放寻址的 int 集合，代替 HashSet&lt;Integer&gt;
+ * 键保存在一个 int[] 中，线性探测；0 用来表示空槽，集合中的 0 单独用一个标志位记录。
+ * 负载因子不超过 1/2，删除时把后面的键前移（不留墓碑），查找不会因为删除而变慢。
+ * 遍历顺序与插入顺序无关。非线程安全。
+ */
+public final class IntHashSet {
+
+    private int[] keys;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+        }
+        allocate(capacityFor(expectedSize));
+    }
+
+    public static IntHashSet of(int... values) {
+        IntHashSet set = new IntHashSet(values.length);
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public static IntHashSet from(IntStream stream) {
+        return stream.collect(IntHashSet::new, IntHashSet::add, IntHashSet::addAll);
+    }
+
+    /**
+     * 加入集合，原来不存在时返回 true
+     */
+    public boolean add(int key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int i = IntIntMap.mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size > (mask + 1) >> 1) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public void addAll(IntHashSet other) {
+        other.forEach(this::add);
+    }
+
+    public boolean contains(int key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int i = IntIntMap.mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 从集合中删除，原来存在时返回 true
+     */
+    public boolean remove(int key) {
+        if (key == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int i = IntIntMap.mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                shiftKeys(i);
+                size--;
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public IntStream stream() {
+        IntStream stream = Arrays.stream(keys).filter(key -> key != 0);
+        return containsZero ? IntStream.concat(IntStream.of(0), stream) : stream;
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        if (containsZero) {
+            result[n++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 删除 slot 处的键后，把同一探测链上后面的键前移
+     */
+    private void shiftKeys(int slot) {
+        int last = slot;
+        int i = (slot + 1) & mask;
+        while (keys[i] != 0) {
+            int home = IntIntMap.mix(keys[i]) & mask;
+            // home 不在 (last, i] 之间时，这个键可以移到 last
+            if (last <= i ? (home <= last || home > i) : (home <= last && home > i)) {
+                keys[last] = keys[i];
+                last = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[last] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] old = keys;
+        allocate(capacity);
+        for (int key : old) {
+            if (key != 0) {
+                int i = IntIntMap.mix(key) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) << 1;
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("too many elements: " + expectedSize);
+        }
+        return capacity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        forEach(key -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key);
+        });
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,258 @@
+package com.stream.primitive;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-30
+ * 开放寻址的 int -&gt; int 映射，代替 Map&lt;Integer, Integer&gt;，常用于计数
+ * 键、值保存在两个平行的 int[] 中，线性探测，0 键单独保存；负载因子不超过 1/2，删除时后面的键前移。
+ * 遍历顺序与插入顺序无关。非线程安全。
+ */
+public final class IntIntMap {
+
+    /**
+     * 一个键值对
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private boolean containsZero;
+    private int zeroValue;
+
+    public IntIntMap() {
+        this(8);
+    }
+
+    public IntIntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative: " + expectedSize);
+        }
+        allocate(IntHashSet.capacityFor(expectedSize));
+    }
+
+    /**
+     * 每个值出现的次数，对应 collect(groupingBy(identity(), counting()))
+     */
+    public static IntIntMap counting(IntStream stream) {
+        return stream.collect(IntIntMap::new, (map, key) -> map.addTo(key, 1), IntIntMap::addAll);
+    }
+
+    /**
+     * 键不存在时返回 defaultValue
+     */
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 设置键的值，返回原来的值，键不存在时返回 defaultValue
+     */
+    public int put(int key, int value, int defaultValue) {
+        if (key == 0) {
+            int old = containsZero ? zeroValue : defaultValue;
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return old;
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        insert(i, key, value);
+        return defaultValue;
+    }
+
+    public void put(int key, int value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * 键的值加上 delta，键不存在时视为 0，返回新值
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+                zeroValue = 0;
+            }
+            return zeroValue += delta;
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                return values[i] += delta;
+            }
+            i = (i + 1) & mask;
+        }
+        insert(i, key, delta);
+        return delta;
+    }
+
+    /**
+     * other 中的每个值加到本映射对应的键上
+     */
+    public void addAll(IntIntMap other) {
+        other.forEach(this::addTo);
+    }
+
+    /**
+     * 删除键，返回原来的值，键不存在时返回 defaultValue
+     */
+    public int remove(int key, int defaultValue) {
+        if (key == 0) {
+            if (!containsZero) {
+                return defaultValue;
+            }
+            containsZero = false;
+            size--;
+            return zeroValue;
+        }
+        int i = mix(key) & mask;
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                int old = values[i];
+                shiftKeys(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZero = false;
+        size = 0;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (containsZero) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public IntStream keys() {
+        IntStream stream = Arrays.stream(keys).filter(key -> key != 0);
+        return containsZero ? IntStream.concat(IntStream.of(0), stream) : stream;
+    }
+
+    /**
+     * 乘以黄金分割数打散低位，int 键常常是连续的小整数
+     */
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void insert(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (mask + 1) >> 1) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftKeys(int slot) {
+        int last = slot;
+        int i = (slot + 1) & mask;
+        while (keys[i] != 0) {
+            int home = mix(keys[i]) & mask;
+            if (last <= i ? (home <= last || home > i) : (home <= last && home > i)) {
+                keys[last] = keys[i];
+                values[last] = values[i];
+                last = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[last] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = mix(oldKeys[j]) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(value);
+        });
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.stream.query;
+
+import com.stream.bean.Trader;
+import com.stream.bean.Transaction;
+import com.stream.bean.TransactionTable;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-26
+ * 查询中可以投影的列
+ * 每一列都能从交易表的一行直接读出，并且有一个 int 键用于去重：交易员、姓名、城市的键是字典 id，年份、交易额的键是值本身。
+ * 列之间有函数依赖：交易决定所有列，交易员决定 姓名、城市。只有被当前列决定的列才能继续投影或作为过滤条件，
+ * 例如 select(TRADER) 之后不能再按年份过滤，与 map(Transaction::getTrader) 之后拿不到年份一致。
+ */
+public final class Column<R> {
+
+    private static final int ALL = -1;
+
+    public static final Column<Transaction> TRANSACTION = new Column<>("TRANSACTION", 0, ALL, true,
+            (table, row) -> row, TransactionTable::toTransaction);
+    public static final Column<Trader> TRADER = new Column<>("TRADER", 1, (1 << 1) | (1 << 2) | (1 << 3), true,
+            TransactionTable::getTraderId, TransactionTable::getTrader);
+    public static final Column<String> TRADER_NAME = new Column<>("TRADER_NAME", 2, 1 << 2, true,
+            (table, row) -> table.registry().nameIdOf(table.getTraderId(row)),
+            (table, row) -> table.getTrader(row).getName());
+    public static final Column<String> CITY = new Column<>("CITY", 3, 1 << 3, true,
+            (table, row) -> table.registry().cityIdOf(table.getTraderId(row)),
+            (table, row) -> table.getTrader(row).getCity());
+    public static final Column<Integer> YEAR = new Column<>("YEAR", 4, 1 << 4, false,
+            TransactionTable::getYear, TransactionTable::getYear);
+    public static final Column<Integer> VALUE = new Column<>("VALUE", 5, 1 << 5, false,
+            TransactionTable::getValue, TransactionTable::getValue);
+
+    @FunctionalInterface
+    interface KeyFunction {
+        int key(TransactionTable table, int row);
+    }
+
+    @FunctionalInterface
+    interface Reader<R> {
+        R read(TransactionTable table, int row);
+    }
+
+    private final String name;
+    private final int bit;
+    private final int determines;
+    private final boolean dense;
+    private final KeyFunction key;
+    private final Reader<R> reader;
+
+    private Column(String name, int bit, int determines, boolean dense, KeyFunction key, Reader<R> reader) {
+        this.name = name;
+        this.bit = 1 << bit;
+        this.determines = determines;
+        this.dense = dense;
+        this.key = key;
+        this.reader = reader;
+    }
+
+    /**
+     * 本列的值是否唯一决定 other 的值
+     */
+    public boolean determines(Column<?> other) {
+        return (determines & other.bit) != 0;
+    }
+
+    /**
+     * 键是否是从 0 开始的稠密 id，稠密的键可以用位图去重、按键缓存谓词结果
+     */
+    boolean isDense() {
+        return dense;
+    }
+
+    int key(TransactionTable table, int row) {
+        return key.key(table, row);
+    }
+
+    R read(TransactionTable table, int row) {
+        return reader.read(table, row);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,224 @@
+package com.stream.query;
+
+import com.stream.bean.Trader;
+import com.stream.bean.TransactionTable;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-26
+ * 查询的过滤条件
+ * 年份、城市、交易额区间 是结构化的条件，查询计划会把它们下推到 TransactionStore 的索引；
+ * 交易员条件只比较 int id；任意谓词 on(column, predicate) 最后执行，
+ * 作用在交易员、姓名、城市这类字典列上时每个 id 只求值一次。
+ */
+public final class Condition {
+
+    enum Kind {
+        YEAR, CITY, VALUE, TRADER, CUSTOM
+    }
+
+    private final Kind kind;
+    private final Column<?> column;
+    private final int year;
+    private final String city;
+    private final int min;
+    private final int max;
+    private final Trader trader;
+    private final Predicate<Object> predicate;
+
+    private Condition(Kind kind, Column<?> column, int year, String city, int min, int max,
+                      Trader trader, Predicate<Object> predicate) {
+        this.kind = kind;
+        this.column = column;
+        this.year = year;
+        this.city = city;
+        this.min = min;
+        this.max = max;
+        this.trader = trader;
+        this.predicate = predicate;
+    }
+
+    public static Condition year(int year) {
+        return new Condition(Kind.YEAR, Column.YEAR, year, null, 0, 0, null, null);
+    }
+
+    public static Condition city(String city) {
+        return new Condition(Kind.CITY, Column.CITY, 0, city, 0, 0, null, null);
+    }
+
+    /**
+     * 交易额在 [min, max] 闭区间内
+     */
+    public static Condition valueBetween(int min, int max) {
+        return new Condition(Kind.VALUE, Column.VALUE, 0, null, min, max, null, null);
+    }
+
+    public static Condition valueGreaterThan(int value) {
+        return value == Integer.MAX_VALUE ? valueBetween(1, 0) : valueBetween(value + 1, Integer.MAX_VALUE);
+    }
+
+    public static Condition valueLessThan(int value) {
+        return value == Integer.MIN_VALUE ? valueBetween(1, 0) : valueBetween(Integer.MIN_VALUE, value - 1);
+    }
+
+    public static Condition trader(Trader trader) {
+        return new Condition(Kind.TRADER, Column.TRADER, 0, null, 0, 0, trader, null);
+    }
+
+    /**
+     * 作用在某一列上的任意谓词
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Condition on(Column<T> column, Predicate<? super T> predicate) {
+        return new Condition(Kind.CUSTOM, column, 0, null, 0, 0, null, (Predicate<Object>) predicate);
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    Column<?> column() {
+        return column;
+    }
+
+    int year() {
+        return year;
+    }
+
+    String city() {
+        return city;
+    }
+
+    int min() {
+        return min;
+    }
+
+    int max() {
+        return max;
+    }
+
+    /**
+     * 能否下推到 TransactionStore 的索引
+     */
+    boolean isIndexed() {
+        return kind == Kind.YEAR || kind == Kind.CITY || kind == Kind.VALUE;
+    }
+
+    /**
+     * 逐行执行时的相对代价，代价低的先执行
+     */
+    int cost() {
+        switch (kind) {
+            case CUSTOM:
+                if (column == Column.TRANSACTION) {
+                    return 4;
+                }
+                return column.isDense() ? 2 : 3;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * 绑定到一张交易表，得到逐行的判断
+     */
+    IntPredicate bind(TransactionTable table) {
+        switch (kind) {
+            case YEAR:
+                return row -> table.getYear(row) == year;
+            case CITY: {
+                int cityId = table.registry().cityId(city);
+                return row -> cityId >= 0 && table.registry().cityIdOf(table.getTraderId(row)) == cityId;
+            }
+            case VALUE:
+                return row -> {
+                    int value = table.getValue(row);
+                    return value >= min && value <= max;
+                };
+            case TRADER: {
+                int traderId = table.registry().idOf(trader);
+                return row -> traderId >= 0 && table.getTraderId(row) == traderId;
+            }
+            default:
+                if (isMemoized()) {
+                    // 每个 id 只求值一次
+                    BitSet evaluated = new BitSet();
+                    BitSet passed = new BitSet();
+                    return row -> {
+                        int key = column.key(table, row);
+                        if (!evaluated.get(key)) {
+                            evaluated.set(key);
+                            if (predicate.test(column.read(table, row))) {
+                                passed.set(key);
+                            }
+                        }
+                        return passed.get(key);
+                    };
+                }
+                return row -> predicate.test(column.read(table, row));
+        }
+    }
+
+    /**
+     * 字典列上的谓词按 id 缓存结果
+     */
+    private boolean isMemoized() {
+        return column.isDense() && column != Column.TRANSACTION;
+    }
+
+    /**
+     * 谓词按对象是否相同比较
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Condition)) {
+            return false;
+        }
+        Condition condition = (Condition) o;
+        return kind == condition.kind
+                && column == condition.column
+                && year == condition.year
+                && min == condition.min
+                && max == condition.max
+                && Objects.equals(city, condition.city)
+                && Objects.equals(trader, condition.trader)
+                && predicate == condition.predicate;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = kind.hashCode();
+        result = 31 * result + column.hashCode();
+        result = 31 * result + year;
+        result = 31 * result + min;
+        result = 31 * result + max;
+        result = 31 * result + Objects.hashCode(city);
+        result = 31 * result + Objects.hashCode(trader);
+        result = 31 * result + System.identityHashCode(predicate);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case YEAR:
+                return "year=" + year;
+            case CITY:
+                return "city=" + city;
+            case VALUE:
+                return "value in [" + min + ", " + max + "]";
+            case TRADER:
+                return "trader=" + trader.getName();
+            default:
+                return column + (isMemoized() ? " predicate (per id)" : " predicate");
+        }
+    }
+}
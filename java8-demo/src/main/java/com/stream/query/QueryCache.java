@@ -0,0 +1,252 @@
+package com.stream.query;
+
+import com.stream.bean.Transaction;
+import com.stream.bean.TransactionSnapshotReader;
+import com.stream.bean.TransactionStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-27
+ * TransactionQuery 的结果缓存
+ * 键是查询的结构和参数（见 TransactionQuery.cacheKey），结构相同的查询命中后直接返回上一次的结果。
+ * 容量满时淘汰最久未访问的结果（LRU），超过存活时间的结果在下次访问时丢弃。
+ * 缓存自己创建并持有交易存储，调用方只能通过 query() 构建查询、通过 add 写入新交易，拿不到存储本身；
+ * 只有年份、城市、交易额落在某个结果依赖范围内的交易才会使该结果失效，
+ * 例如 2012 年米兰的交易不会影响 "剑桥的交易员" 和 "2011 年的交易" 的缓存。
+ * 线程安全：缓存表只在查表、更新时短暂加锁；未命中的查询在锁外执行，同一个键的并发请求等待同一个结果。
+ * TransactionStore 不是线程安全的，执行查询时持有读锁，写入交易时持有写锁。
+ */
+public class QueryCache {
+
+    private final TransactionStore store;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Object, CacheEntry> entries;
+    private final ReadWriteLock storeLock = new ReentrantReadWriteLock();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public QueryCache(Collection<Transaction> transactions, int maxEntries, long ttl, TimeUnit unit) {
+        this(TransactionStore.of(transactions), maxEntries, ttl, unit, System::nanoTime);
+    }
+
+    /**
+     * 从快照文件加载交易
+     */
+    public static QueryCache load(Path snapshot, int maxEntries, long ttl, TimeUnit unit) throws IOException {
+        return new QueryCache(TransactionSnapshotReader.load(snapshot), maxEntries, ttl, unit, System::nanoTime);
+    }
+
+    QueryCache(TransactionStore store, int maxEntries, long ttl, TimeUnit unit, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttl);
+        }
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.clock = clock;
+        this.entries = new LinkedHashMap<Object, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 在缓存的交易上构建查询，结果通过 list 读取
+     */
+    public TransactionQuery<Transaction> query() {
+        return TransactionQuery.from(store);
+    }
+
+    /**
+     * 写入交易，并使依赖范围包含这笔交易的结果失效
+     * 写锁保证正在执行的查询先完成，这些查询的结果已经在缓存表中，会在这里一起失效
+     */
+    public int add(Transaction transaction) {
+        storeLock.writeLock().lock();
+        try {
+            int row = store.add(transaction);
+            invalidate(transaction.getYear(), transaction.getTrader().getCity(), transaction.getValue());
+            return row;
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    private synchronized void invalidate(int year, String city, int value) {
+        Iterator<CacheEntry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().scope.matches(year, city, value)) {
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    /**
+     * 查询结果，返回的列表不可修改；查询必须由 query() 创建
+     */
+    @SuppressWarnings("unchecked")
+    public <R> List<R> list(TransactionQuery<R> query) {
+        if (query.store() != store) {
+            throw new IllegalArgumentException("query is not built by this cache");
+        }
+        Object key = query.cacheKey();
+        CacheEntry entry;
+        boolean compute = false;
+        synchronized (this) {
+            long now = clock.getAsLong();
+            entry = entries.get(key);
+            if (entry != null && now - entry.createdAt >= ttlNanos) {
+                entries.remove(key);
+                evictions++;
+                entry = null;
+            }
+            if (entry != null) {
+                hits++;
+            } else {
+                misses++;
+                entry = new CacheEntry(query.scope(), now);
+                entries.put(key, entry);
+                compute = true;
+            }
+        }
+        if (compute) {
+            compute(key, entry, query);
+        }
+        try {
+            return (List<R>) entry.result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 在锁外执行查询；失败时移除这一项，之后的请求重新执行
+     */
+    private void compute(Object key, CacheEntry entry, TransactionQuery<?> query) {
+        List<?> result;
+        storeLock.readLock().lock();
+        try {
+            result = Collections.unmodifiableList(query.list());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            return;
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        entry.result.complete(result);
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, invalidations);
+    }
+
+    /**
+     * 缓存项，查询执行完成前 result 未完成，同一个键的请求都等待它
+     */
+    private static final class CacheEntry {
+
+        private final CompletableFuture<List<?>> result = new CompletableFuture<>();
+        private final Scope scope;
+        private final long createdAt;
+
+        CacheEntry(Scope scope, long createdAt) {
+            this.scope = scope;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * 命中、未命中、淘汰（容量或过期）、失效 次数
+     */
+    public static final class CacheStats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        CacheStats(long hits, long misses, long evictions, long invalidations) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getInvalidations() {
+            return invalidations;
+        }
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0d : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "CacheStats{" +
+                    "hits=" + hits +
+                    ", misses=" + misses +
+                    ", evictions=" + evictions +
+                    ", invalidations=" + invalidations +
+                    '}';
+        }
+    }
+}
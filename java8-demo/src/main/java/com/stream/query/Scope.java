@@ -0,0 +1,57 @@
+package com.stream.query;
+
+import java.util.Objects;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-27
+ * 一个查询结果依赖的交易范围：年份、城市、交易额区间 的交集，未限制的维度匹配任意值
+ * 条件之间是 且 的关系，同一维度出现两个不同的值时范围为空。
+ */
+final class Scope {
+
+    private boolean empty;
+    private Integer year;
+    private String city;
+    private int minValue = Integer.MIN_VALUE;
+    private int maxValue = Integer.MAX_VALUE;
+
+    void year(int year) {
+        if (this.year != null && this.year != year) {
+            empty = true;
+        }
+        this.year = year;
+    }
+
+    void city(String city) {
+        if (this.city != null && !this.city.equals(city)) {
+            empty = true;
+        }
+        this.city = city;
+    }
+
+    void valueBetween(int min, int max) {
+        minValue = Math.max(minValue, min);
+        maxValue = Math.min(maxValue, max);
+    }
+
+    /**
+     * 这笔交易是否可能改变查询结果
+     */
+    boolean matches(int year, String city, int value) {
+        return !empty
+                && (this.year == null || this.year == year)
+                && (this.city == null || this.city.equals(city))
+                && value >= minValue && value <= maxValue;
+    }
+
+    @Override
+    public String toString() {
+        if (empty || minValue > maxValue) {
+            return "Scope[none]";
+        }
+        return "Scope[year=" + (year == null ? "*" : year)
+                + ", city=" + Objects.toString(city, "*")
+                + ", value=[" + minValue + ", " + maxValue + "]]";
+    }
+}
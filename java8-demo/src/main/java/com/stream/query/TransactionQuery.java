@@ -0,0 +1,577 @@
+package com.stream.query;
+
+import com.stream.bean.Transaction;
+import com.stream.bean.TransactionStore;
+import com.stream.bean.TransactionTable;
+import com.stream.collector.TopKCollectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-26
+ * 声明式的交易查询：where / select / distinct / orderBy / limit
+ * 查询只记录要做什么，执行时由查询计划决定怎么做，写法不同但语义相同的查询得到同样的执行计划：
+ * 1. limit 之前的过滤条件全部提前到投影、去重、排序之前（这些操作都不改变单行的值，过滤可以交换到前面）；
+ * 2. 年份、城市、交易额区间 下推到 TransactionStore 的索引，其余条件按代价从低到高逐行执行；
+ * 3. 过滤、去重、limit 在一次遍历中完成，limit 满了立即停止；排序后紧跟 limit 时用有界堆代替全排序；
+ * 4. 投影放到最后，只有最终输出的行才读取列值。
+ * 例如 TransactionTest.test4（先 map 再 filter）和 test5（先 filter 再 map）写成
+ * from(store).select(Column.TRADER).where(Condition.city("Cambridge")).distinct()
+ * 与 from(store).where(Condition.city("Cambridge")).select(Column.TRADER).distinct() 执行计划相同。
+ * 非线程安全，select 之后应该只使用返回的新查询。
+ */
+public final class TransactionQuery<R> {
+
+    private final TransactionStore store;
+    private final Column<R> column;
+    /**
+     * limit 之前的条件，可以提前
+     */
+    private final List<Condition> conditions;
+    /**
+     * 按书写顺序排列的 去重、排序、limit，以及 limit 之后的过滤
+     */
+    private final List<Stage> stages;
+
+    private TransactionQuery(TransactionStore store, Column<R> column, List<Condition> conditions, List<Stage> stages) {
+        this.store = store;
+        this.column = column;
+        this.conditions = conditions;
+        this.stages = stages;
+    }
+
+    public static TransactionQuery<Transaction> from(TransactionStore store) {
+        return new TransactionQuery<>(store, Column.TRANSACTION, new ArrayList<>(), new ArrayList<>());
+    }
+
+    public static TransactionQuery<Transaction> from(Collection<Transaction> transactions) {
+        return from(TransactionStore.of(transactions));
+    }
+
+    public TransactionQuery<R> where(Condition condition) {
+        if (!column.determines(condition.column())) {
+            throw new IllegalArgumentException("condition on " + condition.column() + " cannot be applied after select(" + column + ")");
+        }
+        if (isLimited()) {
+            stages.add(new Stage(condition));
+        } else {
+            conditions.add(condition);
+        }
+        return this;
+    }
+
+    /**
+     * 作用在当前列上的任意谓词
+     */
+    public TransactionQuery<R> where(Predicate<? super R> predicate) {
+        return where(Condition.on(column, predicate));
+    }
+
+    public <S> TransactionQuery<S> select(Column<S> column) {
+        if (!this.column.determines(column)) {
+            throw new IllegalArgumentException("cannot select " + column + " after select(" + this.column + ")");
+        }
+        return new TransactionQuery<>(store, column, new ArrayList<>(conditions), new ArrayList<>(stages));
+    }
+
+    /**
+     * 按当前列去重，保留第一次出现的行
+     */
+    public TransactionQuery<R> distinct() {
+        stages.add(new Stage(column));
+        return this;
+    }
+
+    /**
+     * 按当前列排序，排序是稳定的
+     */
+    public TransactionQuery<R> orderBy(Comparator<? super R> comparator) {
+        stages.add(new Stage(new Order<>(column, comparator)));
+        return this;
+    }
+
+    public TransactionQuery<R> limit(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        stages.add(new Stage(maxSize));
+        return this;
+    }
+
+    // ---------------------------- 缓存 ----------------------------
+
+    TransactionStore store() {
+        return store;
+    }
+
+    /**
+     * 查询的结构和参数，结构相同、参数相同的查询得到相等的键
+     * 谓词和比较器按对象是否相同比较，需要命中缓存的查询应当复用同一个 lambda 实例
+     */
+    Object cacheKey() {
+        return Arrays.asList(column, new ArrayList<>(conditions), new ArrayList<>(stages));
+    }
+
+    /**
+     * 可能影响结果的交易范围：新交易不满足 limit 之前的全部条件时，查询结果不会变化
+     * 只统计 年份、城市、交易额区间 条件，其余条件保守地认为都可能满足
+     */
+    Scope scope() {
+        Scope scope = new Scope();
+        for (Condition condition : conditions) {
+            switch (condition.kind()) {
+                case YEAR:
+                    scope.year(condition.year());
+                    break;
+                case CITY:
+                    scope.city(condition.city());
+                    break;
+                case VALUE:
+                    scope.valueBetween(condition.min(), condition.max());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return scope;
+    }
+
+    // ---------------------------- 执行 ----------------------------
+
+    public List<R> list() {
+        int[] rows = rows();
+        TransactionTable table = store.table();
+        List<R> result = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            result.add(column.read(table, row));
+        }
+        return result;
+    }
+
+    public int count() {
+        return rows().length;
+    }
+
+    /**
+     * 结果对应的行号
+     */
+    public int[] rows() {
+        return execute(null);
+    }
+
+    /**
+     * 执行计划，每行一个步骤
+     */
+    public String explain() {
+        List<String> plan = new ArrayList<>();
+        execute(plan);
+        return String.join("\n", plan);
+    }
+
+    /**
+     * plan 不为 null 时只生成执行计划，不执行
+     */
+    private int[] execute(List<String> plan) {
+        TransactionTable table = store.table();
+        // 1. 索引扫描
+        List<Condition> indexed = new ArrayList<>();
+        List<Condition> residual = new ArrayList<>();
+        TransactionStore.Query query = indexScan(indexed, residual);
+        int[] rows = null;
+        if (plan != null) {
+            plan.add(indexed.isEmpty() ? "Scan[" + table.size() + " rows]" : "IndexScan" + indexed);
+        } else {
+            rows = query.rows();
+        }
+        // 2. 逐行过滤、去重、limit 融合成一次遍历，遇到排序时断开
+        List<Stage> fused = new ArrayList<>();
+        boolean first = true;
+        int i = 0;
+        while (true) {
+            fused.clear();
+            while (i < stages.size() && stages.get(i).order == null) {
+                fused.add(stages.get(i++));
+            }
+            if (plan != null) {
+                String step = describe(first ? residual : Collections.<Condition>emptyList(), fused);
+                if (step != null) {
+                    plan.add(step);
+                }
+            } else {
+                rows = pass(table, rows, first ? residual : Collections.<Condition>emptyList(), fused);
+            }
+            first = false;
+            if (i == stages.size()) {
+                break;
+            }
+            Order<?> order = stages.get(i++).order;
+            if (i < stages.size() && stages.get(i).limit >= 0) {
+                int k = stages.get(i++).limit;
+                if (plan != null) {
+                    plan.add("TopK[" + k + " by " + order.column + "]");
+                } else {
+                    rows = order.least(table, rows, k);
+                }
+            } else if (plan != null) {
+                plan.add("Sort[by " + order.column + "]");
+            } else {
+                rows = order.sort(table, rows);
+            }
+        }
+        if (plan != null) {
+            plan.add("Project[" + column + "]");
+        }
+        return rows;
+    }
+
+    /**
+     * 结果行号的流，边执行边产生，不保存整个结果，适合流式输出大结果
+     * 查询中有排序时需要先看到全部候选行，这时退化为 Arrays.stream(rows())
+     */
+    public IntStream rowStream() {
+        for (Stage stage : stages) {
+            if (stage.order != null) {
+                return Arrays.stream(rows());
+            }
+        }
+        List<Condition> residual = new ArrayList<>();
+        TransactionStore.Query query = indexScan(new ArrayList<>(), residual);
+        Pass pass = new Pass(store.table(), residual, stages);
+        PrimitiveIterator.OfInt candidates = query.stream().iterator();
+        return StreamSupport.intStream(new Spliterators.AbstractIntSpliterator(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL) {
+
+            private boolean done;
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                while (!done && candidates.hasNext()) {
+                    int row = candidates.nextInt();
+                    int result = pass.test(row);
+                    if (result == Pass.ACCEPT) {
+                        action.accept(row);
+                        return true;
+                    }
+                    done = result == Pass.STOP;
+                }
+                return false;
+            }
+        }, false);
+    }
+
+    /**
+     * 把 年份、城市、交易额区间 条件下推到索引，其余条件按代价从低到高放进 residual
+     */
+    private TransactionStore.Query indexScan(List<Condition> indexed, List<Condition> residual) {
+        TransactionStore.Query query = store.query();
+        for (Condition condition : conditions) {
+            if (condition.isIndexed()) {
+                indexed.add(condition);
+                switch (condition.kind()) {
+                    case YEAR:
+                        query.year(condition.year());
+                        break;
+                    case CITY:
+                        query.city(condition.city());
+                        break;
+                    default:
+                        query.valueBetween(condition.min(), condition.max());
+                        break;
+                }
+            } else {
+                residual.add(condition);
+            }
+        }
+        residual.sort(Comparator.comparingInt(Condition::cost));
+        return query;
+    }
+
+    private static int[] pass(TransactionTable table, int[] rows, List<Condition> residual, List<Stage> stages) {
+        if (residual.isEmpty() && stages.isEmpty()) {
+            return rows;
+        }
+        Pass pass = new Pass(table, residual, stages);
+        int n = 0;
+        for (int row : rows) {
+            int result = pass.test(row);
+            if (result == Pass.STOP) {
+                break;
+            }
+            if (result == Pass.ACCEPT) {
+                rows[n++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+    private static String describe(List<Condition> residual, List<Stage> stages) {
+        StringBuilder sb = new StringBuilder();
+        if (!residual.isEmpty()) {
+            sb.append("Filter").append(residual);
+        }
+        for (Stage stage : stages) {
+            if (sb.length() > 0) {
+                sb.append(" + ");
+            }
+            sb.append(stage);
+        }
+        return sb.length() == 0 ? null : "Fused[" + sb + "]";
+    }
+
+    private boolean isLimited() {
+        for (Stage stage : stages) {
+            if (stage.limit >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一次遍历中逐行执行的 过滤、去重、limit，按行的先后顺序调用 test
+     */
+    private static final class Pass {
+
+        static final int REJECT = 0;
+        static final int ACCEPT = 1;
+        /**
+         * 后面的行都无法通过某个 limit
+         */
+        static final int STOP = -1;
+
+        private final IntPredicate[] filters;
+        private final List<Stage> stages;
+        private final IntPredicate[] steps;
+        private final int[] counts;
+
+        Pass(TransactionTable table, List<Condition> residual, List<Stage> stages) {
+            this.filters = new IntPredicate[residual.size()];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = residual.get(i).bind(table);
+            }
+            this.stages = stages;
+            this.steps = new IntPredicate[stages.size()];
+            for (int i = 0; i < steps.length; i++) {
+                steps[i] = stages.get(i).bind(table);
+            }
+            this.counts = new int[stages.size()];
+        }
+
+        int test(int row) {
+            for (IntPredicate filter : filters) {
+                if (!filter.test(row)) {
+                    return REJECT;
+                }
+            }
+            for (int s = 0; s < steps.length; s++) {
+                Stage stage = stages.get(s);
+                if (stage.limit >= 0) {
+                    if (counts[s] == stage.limit) {
+                        return STOP;
+                    }
+                    counts[s]++;
+                } else if (!steps[s].test(row)) {
+                    return REJECT;
+                }
+            }
+            return ACCEPT;
+        }
+    }
+
+    /**
+     * 去重、排序、limit 或 limit 之后的过滤，只有一个字段有值
+     */
+    private static final class Stage {
+
+        private final Column<?> distinct;
+        private final Order<?> order;
+        private final int limit;
+        private final Condition filter;
+
+        Stage(Column<?> distinct) {
+            this(distinct, null, -1, null);
+        }
+
+        Stage(Order<?> order) {
+            this(null, order, -1, null);
+        }
+
+        Stage(int limit) {
+            this(null, null, limit, null);
+        }
+
+        Stage(Condition filter) {
+            this(null, null, -1, filter);
+        }
+
+        private Stage(Column<?> distinct, Order<?> order, int limit, Condition filter) {
+            this.distinct = distinct;
+            this.order = order;
+            this.limit = limit;
+            this.filter = filter;
+        }
+
+        /**
+         * 去重、过滤 的逐行判断；limit 在 pass 中计数
+         */
+        IntPredicate bind(TransactionTable table) {
+            if (filter != null) {
+                return filter.bind(table);
+            }
+            if (distinct == null) {
+                return row -> true;
+            }
+            Column<?> column = distinct;
+            if (column.isDense()) {
+                BitSet seen = new BitSet();
+                return row -> {
+                    int key = column.key(table, row);
+                    if (seen.get(key)) {
+                        return false;
+                    }
+                    seen.set(key);
+                    return true;
+                };
+            }
+            Set<Integer> seen = new HashSet<>();
+            return row -> seen.add(column.key(table, row));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Stage)) {
+                return false;
+            }
+            Stage stage = (Stage) o;
+            return limit == stage.limit
+                    && distinct == stage.distinct
+                    && Objects.equals(order, stage.order)
+                    && Objects.equals(filter, stage.filter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(distinct, order, limit, filter);
+        }
+
+        @Override
+        public String toString() {
+            if (distinct != null) {
+                return "Distinct[" + distinct + "]";
+            }
+            if (limit >= 0) {
+                return "Limit[" + limit + "]";
+            }
+            return "Filter[" + filter + "]";
+        }
+    }
+
+    /**
+     * 按某一列的值排序，列值在排序前读取一次
+     */
+    private static final class Order<T> {
+
+        private final Column<T> column;
+        private final Comparator<? super T> comparator;
+
+        Order(Column<T> column, Comparator<? super T> comparator) {
+            this.column = column;
+            this.comparator = comparator;
+        }
+
+        /**
+         * 比较器通常是 lambda，按对象是否相同判断
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Order)) {
+                return false;
+            }
+            Order<?> order = (Order<?>) o;
+            return column == order.column && comparator == order.comparator;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * column.hashCode() + System.identityHashCode(comparator);
+        }
+
+        int[] sort(TransactionTable table, int[] rows) {
+            List<Keyed<T>> keyed = keyed(table, rows);
+            keyed.sort((a, b) -> comparator.compare(a.value, b.value));
+            return toRows(keyed);
+        }
+
+        /**
+         * 前 k 行，结果与先排序再 limit 一致，只保留 k 个列值
+         */
+        int[] least(TransactionTable table, int[] rows, int k) {
+            if (k == 0) {
+                return new int[0];
+            }
+            return toRows(least(table, rows, TopKCollectors.least(k, (Keyed<T> a, Keyed<T> b) -> comparator.compare(a.value, b.value))));
+        }
+
+        private <A> List<Keyed<T>> least(TransactionTable table, int[] rows, Collector<Keyed<T>, A, List<Keyed<T>>> collector) {
+            BiConsumer<A, Keyed<T>> accumulator = collector.accumulator();
+            A container = collector.supplier().get();
+            for (int row : rows) {
+                accumulator.accept(container, new Keyed<>(row, column.read(table, row)));
+            }
+            return collector.finisher().apply(container);
+        }
+
+        private List<Keyed<T>> keyed(TransactionTable table, int[] rows) {
+            List<Keyed<T>> keyed = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                keyed.add(new Keyed<>(row, column.read(table, row)));
+            }
+            return keyed;
+        }
+
+        private static <T> int[] toRows(List<Keyed<T>> keyed) {
+            int[] result = new int[keyed.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = keyed.get(i).row;
+            }
+            return result;
+        }
+    }
+
+    private static final class Keyed<T> {
+
+        private final int row;
+        private final T value;
+
+        Keyed(int row, T value) {
+            this.row = row;
+            this.value = value;
+        }
+    }
+}
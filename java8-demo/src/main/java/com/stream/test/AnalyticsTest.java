@@ -0,0 +1,166 @@
+package com.stream.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.bean.Creater;
+import com.stream.bean.Dish;
+import com.stream.bean.DishTable;
+import com.stream.bean.Transaction;
+import com.stream.bean.TransactionStore;
+import com.stream.web.AnalyticsExceptionHandler;
+import com.stream.web.MenuController;
+import com.stream.web.TradeController;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 分析接口测试类，直接调用控制器，流式响应体写到内存中检查
+ */
+public class AnalyticsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AnalyticsExceptionHandler handler = new AnalyticsExceptionHandler();
+    private ThreadPoolTaskExecutor executor;
+    private TradeController trades;
+    private MenuController menu;
+
+    @Before
+    public void setUp() {
+        executor = executor(2, 16);
+        trades = new TradeController(TransactionStore.of(Creater.createTransaction()), executor, mapper);
+        menu = new MenuController(DishTable.of(Creater.createDish()), executor, mapper);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 流式输出 2012 年剑桥交易员的交易
+     */
+    @Test
+    public void test1() throws IOException {
+        String json = write(trades.list(2012, "Cambridge"));
+        System.out.println(json);
+        assertEquals("[{\"trader\":\"Troul\",\"city\":\"Cambridge\",\"year\":2012,\"value\":1000},"
+                + "{\"trader\":\"Alan\",\"city\":\"Cambridge\",\"year\":2012,\"value\":950}]", json);
+
+        assertEquals("[]", write(trades.list(2015, null)));
+    }
+
+    /**
+     * 流式输出热量在 [300, 450) 的菜肴
+     */
+    @Test
+    public void test2() throws IOException {
+        String json = write(menu.dishes(300, 450));
+        System.out.println(json);
+        assertEquals("[{\"name\":\"chicken\",\"vegetarian\":false,\"calories\":400,\"type\":\"MEAT\"},"
+                + "{\"name\":\"rice\",\"vegetarian\":true,\"calories\":350,\"type\":\"OTHER\"},"
+                + "{\"name\":\"prawns\",\"vegetarian\":false,\"calories\":300,\"type\":\"FISH\"}]", json);
+    }
+
+    /**
+     * 异步查询：交易额最高的 2 笔交易、热量最高的 2 道菜
+     */
+    @Test
+    public void test3() {
+        List<Integer> values = trades.top(2, null, null).join().stream()
+                .map(Transaction::getValue)
+                .collect(Collectors.toList());
+        assertEquals("[1000, 950]", values.toString());
+
+        List<String> names = menu.top(2).join().stream()
+                .map(Dish::getName)
+                .collect(Collectors.toList());
+        assertEquals("[pork, beef]", names.toString());
+    }
+
+    /**
+     * k <= 0 时返回 400
+     */
+    @Test
+    public void test4() {
+        try {
+            trades.top(0, null, null);
+            fail("k=0 should be rejected");
+        } catch (IllegalArgumentException e) {
+            ResponseEntity<Map<String, String>> response = handler.badRequest(e);
+            assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+            assertEquals("k must be positive: 0", response.getBody().get("error"));
+        }
+        try {
+            menu.top(-1);
+            fail("k=-1 should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, handler.badRequest(e).getStatusCode());
+        }
+    }
+
+    /**
+     * 线程池和队列都满时拒绝查询，返回 503
+     */
+    @Test
+    public void test5() throws InterruptedException {
+        ThreadPoolTaskExecutor full = executor(1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            full.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            started.await();
+            TradeController busy = new TradeController(TransactionStore.of(Creater.createTransaction()), full, mapper);
+            try {
+                busy.summary(null, null);
+                fail("query should be rejected");
+            } catch (RejectedExecutionException e) {
+                ResponseEntity<Map<String, String>> response = handler.rejected(e);
+                assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+                assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+            }
+        } finally {
+            release.countDown();
+            full.shutdown();
+        }
+    }
+
+    private static ThreadPoolTaskExecutor executor(int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
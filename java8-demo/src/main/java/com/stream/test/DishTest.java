@@ -1,9 +1,20 @@
 package com.stream.test;
 
 import com.stream.bean.CaloricLevel;
+import com.stream.bean.CalorieIndex;
+import com.stream.bean.Creater;
 import com.stream.bean.Dish;
+import com.stream.bean.DishPool;
+import com.stream.bean.DishTable;
+import com.stream.bean.LiveMenu;
+import com.stream.collector.EnumCollectors;
+import com.stream.collector.EnumCube;
+import com.stream.collector.TopKCollectors;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -401,4 +412,158 @@ public class DishTest {
         System.out.println(dishNames);
     }
 
+    /**
+     * 使用列式菜单 DishTable 回答 test1、test12、test18、test23 的问题，不创建 Dish 对象
+     */
+    @Test
+    public void test30(){
+        DishTable table = DishTable.of(menu);
+        int[] rows = table.sortByCalories(table.filterCalories(c -> c < 400));
+        System.out.println(Arrays.toString(table.names(rows)));  // [season fruit, prawns, rice]
+        System.out.println(table.sumCalories());          // 4200
+        System.out.println(table.summarizeCalories());    // IntSummaryStatistics{count=9, sum=4200, min=120, average=466.666667, max=800}
+        System.out.println(table.countByType());          // {MEAT=3, FISH=2, OTHER=4}
+    }
+
+    /**
+     * 使用 EnumCollectors 代替 groupingBy：按枚举序号分组，累加过程不装箱，结果为 EnumMap
+     * 对应 test23、test25、test28
+     */
+    @Test
+    public void test31(){
+        Map<Dish.Type, Long> countByType = menu.stream()
+                .collect(EnumCollectors.countingByType());
+        Map<Dish.Type, Long> caloriesByType = menu.stream()
+                .collect(EnumCollectors.summingCaloriesByType());
+        Map<CaloricLevel, Long> countByLevel = menu.stream()
+                .collect(EnumCollectors.countingByCaloricLevel());
+        System.out.println(countByType);      // {MEAT=3, FISH=2, OTHER=4}
+        System.out.println(caloriesByType);   // {MEAT=1900, FISH=750, OTHER=1550}
+        System.out.println(countByLevel);     // {DIET=4, NORMAL=4, FAT=1}
+        System.out.println(menu.parallelStream()
+                .collect(EnumCollectors.maxCaloriesByType()));
+    }
+
+    /**
+     * 使用热量有序索引：区间筛选、计数、按热量等级分桶都通过二分查找完成
+     * 对应 test1、test29、test28
+     */
+    @Test
+    public void test32(){
+        DishTable table = DishTable.of(menu);
+        CalorieIndex index = CalorieIndex.of(table);
+        System.out.println(Arrays.toString(table.names(index.rowsLessThan(400))));     // [season fruit, prawns, rice]
+        System.out.println(index.countGreaterThan(300));                                // 7
+        System.out.println(Arrays.toString(table.names(index.rowsOf(CaloricLevel.FAT)))); // [pork]
+        System.out.println(index.countByCaloricLevel());                                // {DIET=4, NORMAL=4, FAT=1}
+    }
+
+    /**
+     * 取热量最低的3道菜：有界堆代替 sorted().limit(3)，只保留k个元素，不需要对整个流排序
+     */
+    @Test
+    public void test33(){
+        List<Dish> dishes = menu.parallelStream()
+                .collect(TopKCollectors.lowestCalories(3));
+        System.out.println(dishes);  // season fruit, prawns, rice
+        List<String> fatDishes = menu.stream()
+                .collect(TopKCollectors.highestCalories(2))
+                .stream()
+                .map(Dish::getName)
+                .collect(Collectors.toList());
+        System.out.println(fatDishes);  // [pork, beef]
+    }
+
+    /**
+     * 菜肴规范化：Creater 多次创建的菜单共享同一批实例，equals 直接通过 == 返回
+     * Dish 的哈希值在构造时缓存，放入 Set 去重时不再重复计算
+     */
+    @Test
+    public void test34(){
+        List<Dish> menu1 = Creater.createDish();
+        List<Dish> menu2 = Creater.createDish();
+        System.out.println(menu1.get(0) == menu2.get(0));   // true
+        Set<Dish> dishes = new HashSet<>(menu1);
+        dishes.addAll(menu2);
+        System.out.println(dishes.size());   // 9
+
+        // 单独的池，结果不受其他测试影响；命中时返回已有的实例
+        DishPool pool = new DishPool();
+        menu1.forEach(pool::intern);
+        System.out.println(pool.intern("pork", false, 800, Dish.Type.MEAT) == menu1.get(0));   // true
+        System.out.println(pool.intern(new Dish("pork", false, 800, Dish.Type.MEAT)) == menu1.get(0));   // true
+        System.out.println(pool.size());   // 9
+    }
+
+    /**
+     * 可变菜单：增删改时同步维护统计信息，读取统计结果不需要重新遍历菜单
+     */
+    @Test
+    public void test35(){
+        LiveMenu liveMenu = new LiveMenu(menu);
+        System.out.println(liveMenu.statistics());   // Statistics{count=9, sum=4200, min=120, average=466.666667, max=800}
+        liveMenu.remove(menu.get(0));                 // 删除 pork
+        liveMenu.update(menu.get(5), new Dish("season fruit", true, 150, Dish.Type.OTHER));
+        System.out.println(liveMenu.statistics());   // Statistics{count=8, sum=3430, min=150, average=428.750000, max=700}
+        System.out.println(liveMenu.statistics(Dish.Type.MEAT));
+        System.out.println(liveMenu.statisticsByCaloricLevel());
+    }
+
+    /**
+     * 类型 × 热量等级 的交叉表，对应 test22 的多级分组
+     * 一次遍历同时得到每个单元格的个数、热量和、素食个数，并可以沿任意维度汇总
+     */
+    @Test
+    public void test36(){
+        EnumCube<Dish.Type, CaloricLevel> cube = menu.stream()
+                .collect(EnumCube.dishesByTypeAndCaloricLevel());
+        System.out.println(cube.countTable());   // {MEAT={DIET=1, NORMAL=1, FAT=1}, FISH={DIET=1, NORMAL=1}, OTHER={DIET=2, NORMAL=2}}
+        System.out.println(cube.sum(0, Dish.Type.OTHER, CaloricLevel.NORMAL));   // 1080
+        System.out.println(cube.sumByRow(1));    // 各类型的素食个数 {MEAT=0, FISH=0, OTHER=4}
+        System.out.println(cube.countByColumn());   // {DIET=4, NORMAL=4, FAT=1}
+    }
+
+    /**
+     * 并行查询：DishTable 的行号流可以均匀拆分，fork-join 模式直接在原始类型数组上求和、分组
+     * 对应 test12、test20、test25
+     */
+    @Test
+    public void test37(){
+        DishTable.Builder builder = DishTable.builder();
+        for (int i = 0; i < 100_000; i++) {
+            builder.add(menu.get(i % menu.size()));
+        }
+        DishTable table = builder.build();
+        long streamSum = table.rows().parallel()
+                .mapToLong(table::getCalories)
+                .sum();
+        System.out.println(streamSum + ", " + table.parallelSumCalories());   // 46667000, 46667000
+        System.out.println(Arrays.toString(table.parallelCountByTypeOrdinal()));
+        System.out.println(Arrays.toString(table.parallelSumCaloriesByTypeOrdinal()));
+        System.out.println(table.parallelCountCalories(c -> c > 300));
+    }
+
+    /**
+     * 从 CSV 文件加载菜单：文件内存映射后直接按字节解析，行数据直接写入 DishTable
+     */
+    @Test
+    public void test38() throws IOException {
+        Path file = Files.createTempFile("menu", ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("name,vegetarian,calories,type");
+        menu.forEach(d -> lines.add(d.getName() + "," + d.isVegetarian() + "," + d.getCalories() + "," + d.getType()));
+        Files.write(file, lines);
+        DishTable table = Creater.loadDish(file);
+        System.out.println(table.size());           // 9
+        System.out.println(table.sumCalories());    // 4200
+        System.out.println(table.toDish(0));        // Dish{name='pork', vegetarian=false, calories=800, type=MEAT}
+
+        //没有表头时，以 name 开头的菜名不会被当作表头跳过；类型不区分大小写
+        Files.write(file, Arrays.asList("nameko soup,TRUE,90,other", "salmon,false,450,Fish"));
+        table = Creater.loadDish(file);
+        System.out.println(table.toDish(0));        // Dish{name='nameko soup', vegetarian=true, calories=90, type=OTHER}
+        System.out.println(table.toDish(1).getType());   // FISH
+        Files.delete(file);
+    }
+
 }
@@ -1,10 +1,19 @@
 package com.stream.test;
 
+import com.stream.create.ArithmeticSequence;
+import com.stream.create.CartesianProduct;
+import com.stream.create.Fibonacci;
+import com.stream.create.PythagoreanTriples;
+import com.stream.create.RandomStreams;
+import com.stream.primitive.IntIntMap;
+import com.stream.primitive.IntList;
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -201,5 +210,116 @@ public class StreamTest {
 
     }
 
+    /**
+     * 使用 int 专用的集合改写 test1、test2、test5、test7，全程不装箱
+     * IntList.distinct() 用开放寻址的 IntHashSet 去重，保留第一次出现的顺序
+     */
+    @Test
+    public void test15(){
+        IntList nums = IntList.of(1,2,1,3,3,2,4);
+        System.out.println(IntList.from(nums.stream().filter(i -> i % 2 == 0)).distinct());   // [2, 4]
+
+        IntList odds = IntList.from(IntList.of(1,2,3,1,3,2,4).stream()
+                .filter(i -> i % 2 == 1)
+                .skip(2));
+        System.out.println(odds);   // [1, 3]
+
+        IntList squares = IntList.from(IntList.of(1,2,3,4,5).stream().map(i -> i * i));
+        System.out.println(squares);   // [1, 4, 9, 16, 25]
+
+        IntList.of(1,3,5,4,2).stream()
+                .filter(i -> i % 2 == 0)
+                .findFirst()
+                .ifPresent(System.out::println);   // 4
+
+        IntIntMap counts = IntIntMap.counting(nums.stream());
+        System.out.println(counts.getOrDefault(3, 0));   // 2
+    }
+
+    /**
+     * 用欧几里得公式生成勾股数，改写 test13：不装箱、不开方、不为候选的 (a, b) 创建数组
+     * stream() 返回打包成 long 的勾股数，排序后与 test13 的顺序相同
+     */
+    @Test
+    public void test16(){
+        PythagoreanTriples.stream(20)
+                .sorted()
+                .forEach(t -> System.out.println(PythagoreanTriples.a(t)+", "+PythagoreanTriples.b(t)+", "+PythagoreanTriples.c(t)));
+        // 3, 4, 5
+        // 5, 12, 13
+        // 6, 8, 10
+        // 8, 15, 17
+        // 9, 12, 15
+        // 12, 16, 20
+        // 15, 20, 25
+
+        System.out.println(PythagoreanTriples.count(100));   // 63
+
+        LongAdder hypotenuses = new LongAdder();
+        long count = PythagoreanTriples.parallelForEach(1_000_000, (a, b, c) -> hypotenuses.add(c));
+        System.out.println(count);   // 2269788
+        System.out.println(hypotenuses.sum());   // 1353468774437
+    }
+
+    /**
+     * 用 CartesianProduct 改写 test6：不为每一对创建 int[]，并行时按线性下标均匀拆分
+     */
+    @Test
+    public void test17(){
+        CartesianProduct.of(new int[]{1,2,3}, new int[]{3,4})
+                .forEach((i, j) -> System.out.print("("+i+","+j+")"));
+        System.out.println();   // (1,3)(1,4)(2,3)(2,4)(3,3)(3,4)
+
+        //和能被3整除的数对
+        long count = CartesianProduct.range(0, 2000, 0, 2000).pairs()
+                .parallel()
+                .filter(p -> (CartesianProduct.first(p) + CartesianProduct.second(p)) % 3 == 0)
+                .count();
+        System.out.println(count);   // 1333333
+
+        //多维时复用同一个数组
+        LongAdder sum = new LongAdder();
+        CartesianProduct.range(new int[]{0,0,0}, new int[]{100,100,100})
+                .parallelForEach((int[] t) -> sum.add(t[0] * t[1] * t[2]));
+        System.out.println(sum.sum());   // 121287375000
+    }
+
+    /**
+     * 可以跳到第n项的数列，代替 CreateStream 中的 Stream.iterate
+     */
+    @Test
+    public void test18(){
+        ArithmeticSequence evens = ArithmeticSequence.of(0, 2);
+        System.out.println(evens.stream(10).boxed().collect(Collectors.toList()));   // [0, 2, 4, 6, 8, 10, 12, 14, 16, 18]
+        System.out.println(evens.nth(1_000_000_000L));   // 2000000000
+        System.out.println(evens.sum(10));   // 90
+        // 首末项相加会溢出，但和没有溢出
+        System.out.println(ArithmeticSequence.of(Long.MAX_VALUE - 1, 0).sum(1));   // 9223372036854775806
+
+        System.out.println(Fibonacci.stream(0, 10).boxed().collect(Collectors.toList()));   // [0, 1, 1, 2, 3, 5, 8, 13, 21, 34]
+        System.out.println(Fibonacci.nth(Fibonacci.MAX_LONG_INDEX));   // 7540113804746346429
+        System.out.println(Fibonacci.nthBig(100));   // 354224848179261915075
+
+        //并行时每一段先跳到自己的第一项，再逐项相加
+        System.out.println(Fibonacci.bigStream(0, 1000).parallel().mapToInt(BigInteger::bitLength).max().getAsInt());   // 693
+    }
+
+    /**
+     * 可重现的随机数流，代替 CreateStream 中的 Stream.generate(Math::random)
+     * 同一个种子顺序和并行的结果相同
+     */
+    @Test
+    public void test19(){
+        RandomStreams random = RandomStreams.seeded(42);
+        System.out.println(random.ints(5, 0, 100).boxed().collect(Collectors.toList()));   // [74, 15, 27, 34, 3]
+        System.out.println(random.longs(5, 0, 100).boxed().collect(Collectors.toList()));   // [74, 15, 27, 34, 3]
+
+        int[] sequential = random.ints(100_000, 1, 7).toArray();
+        int[] parallel = random.ints(100_000, 1, 7).parallel().toArray();
+        System.out.println(Arrays.equals(sequential, parallel));   // true
+
+        System.out.println(Math.round(random.gaussians(100_000, 100, 15).average().getAsDouble()));   // 100
+        System.out.println(Math.round(random.exponentials(100_000, 5).parallel().average().getAsDouble()));   // 5
+    }
 
 }
@@ -1,10 +1,31 @@
 package com.stream.test;
 
+import com.stream.bean.TradeFeed;
 import com.stream.bean.Trader;
 import com.stream.bean.Transaction;
+import com.stream.bean.TransactionFile;
+import com.stream.bean.TransactionLedger;
+import com.stream.bean.TransactionSnapshotReader;
+import com.stream.bean.TransactionSnapshotWriter;
+import com.stream.bean.TransactionStore;
+import com.stream.bean.TransactionTable;
+import com.stream.collector.TopKCollectors;
+import com.stream.query.Column;
+import com.stream.query.Condition;
+import com.stream.query.QueryCache;
+import com.stream.query.TransactionQuery;
+import com.stream.window.SlidingWindow;
+import com.stream.window.TumblingWindow;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -241,4 +262,291 @@ public class TransactionTest {
         System.out.println(maxValue.get());
     }
 
+    /**
+     * 找出2011年交易额最高的交易，有界堆代替 sorted() 全排序
+     * 找出交易额最低的两笔交易
+     */
+    @Test
+    public void test16(){
+        List<Transaction> top = transactions.parallelStream()
+                .filter(t -> t.getYear() == 2011)
+                .collect(TopKCollectors.highestValue(1));
+        System.out.println(top);   // raoul 2011 400
+        List<Transaction> lowest = transactions.stream()
+                .collect(TopKCollectors.lowestValue(2));
+        System.out.println(lowest);  // brian 300, raoul 400
+    }
+
+    /**
+     * Trader 实现了 equals/hashCode，内容相同的交易员不再因为是不同的对象而无法去重
+     * 交易员注册后得到连续的 id，城市、交易员的去重变成位图操作
+     */
+    @Test
+    public void test17(){
+        System.out.println(new Trader("Mario", "Milan").equals(mario));   // true
+        TransactionTable table = TransactionTable.of(transactions);
+        System.out.println(table.distinctCities());              // [Cambridge, Milan]
+        System.out.println(table.tradersInCity("Cambridge"));    // [Trader: Alan in Cambridge, Trader: Brian in Cambridge, Trader: Troul in Cambridge]
+        System.out.println(table.distinctTraderIds().cardinality());   // 4
+    }
+
+    /**
+     * 通过 年份、城市 二级索引查询，对应 test1、test10、test11
+     * 先对倒排列表求交集，只读取命中的行
+     */
+    @Test
+    public void test18(){
+        TransactionStore store = TransactionStore.of(transactions);
+        System.out.println(store.query().year(2011).transactions());
+        System.out.println(Arrays.toString(store.query().city("Cambridge").values()));   // [300, 1000, 400, 950]
+        System.out.println(store.query().year(2012).city("Cambridge").valueBetween(0, 999).count());   // 1
+    }
+
+    /**
+     * 按年份分段的账本：最值查询直接读取每段的统计信息，范围查询跳过不可能命中的段
+     * 对应 test12 ~ test15
+     */
+    @Test
+    public void test19(){
+        TransactionLedger ledger = TransactionLedger.of(transactions);
+        System.out.println(ledger.segments());
+        System.out.println(ledger.maxValue().getAsInt());      // 1000
+        System.out.println(ledger.minTransaction().get());     // brian 2011 300
+        System.out.println(ledger.minTransaction(2012).get()); // mario 2012 700
+        System.out.println(ledger.anyValueGreaterThan(900));   // true
+        System.out.println(ledger.countValueGreaterThan(900)); // 2
+    }
+
+    /**
+     * 多线程并发写入交易，同时按交易员、城市维护统计信息，读取时不阻塞写线程
+     */
+    @Test
+    public void test20() throws InterruptedException {
+        TradeFeed feed = new TradeFeed();
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread(() -> {
+                for (int n = 0; n < 10_000; n++) {
+                    transactions.forEach(feed::append);
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        System.out.println(feed.size());                 // 240000
+        System.out.println(feed.stats());                // TradeStats{count=240000, sum=162400000, max=1000}
+        System.out.println(feed.stats(raoul));           // TradeStats{count=80000, sum=56000000, max=1000}
+        System.out.println(feed.stats("Milan"));         // TradeStats{count=80000, sum=56400000, max=710}
+    }
+
+    /**
+     * 滑动窗口、滚动窗口：每来一笔交易更新一次，不需要重新扫描窗口内的所有交易
+     * 时间窗口中假设第 i 笔交易发生在第 i 秒
+     */
+    @Test
+    public void test21(){
+        SlidingWindow last3 = SlidingWindow.ofCount(3);
+        transactions.forEach(last3::accept);
+        System.out.println(last3.stats());   // WindowStats{start=3, end=6, count=3, sum=2360, min=700, max=950}
+
+        SlidingWindow last2s = SlidingWindow.ofTime(2, TimeUnit.SECONDS);
+        for (int i = 0; i < transactions.size(); i++) {
+            last2s.accept(transactions.get(i), i * 1000L);
+        }
+        System.out.println(last2s.sum() + " " + last2s.max());   // 1650 950
+
+        TumblingWindow every4 = TumblingWindow.ofCount(4, System.out::println);
+        transactions.forEach(every4::accept);   // WindowStats{start=0, end=4, count=4, sum=2410, min=300, max=1000}
+        every4.flush();                         // WindowStats{start=4, end=6, count=2, sum=1650, min=700, max=950}
+
+        TumblingWindow every3s = TumblingWindow.ofTime(3, TimeUnit.SECONDS, System.out::println);
+        for (int i = 0; i < transactions.size(); i++) {
+            every3s.accept(transactions.get(i), i * 1000L);   // WindowStats{start=0, end=3000, count=3, sum=1700, min=300, max=1000}
+        }
+        every3s.flush();                                      // WindowStats{start=3000, end=6000, count=3, sum=2360, min=700, max=950}
+        try {
+            // 迟到的交易不会重新打开已经输出的窗口
+            every3s.accept(transactions.get(0), 2000L);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());              // timestamp goes backwards: 2000 < 6000
+        }
+    }
+
+    /**
+     * 交易写入内存映射的账本文件，关闭后重新打开直接查询，不需要重新加载
+     * 查询在映射的字节上进行，只有最后需要输出时才创建 Transaction
+     */
+    @Test
+    public void test22() throws IOException {
+        Path file = Files.createTempFile("transactions", ".dat");
+        Files.delete(file);
+        try (TransactionFile ledger = TransactionFile.open(file)) {
+            for (Transaction transaction : transactions) {
+                ledger.append(transaction);
+            }
+        }
+        try (TransactionFile ledger = TransactionFile.open(file)) {
+            System.out.println(ledger.size());   // 6
+            for (int row : ledger.sortByValue(ledger.rowsOfYear(2011))) {
+                System.out.println(ledger.toTransaction(row));
+            }
+            System.out.println(ledger.distinctCities());        // [Cambridge, Milan]
+            System.out.println(ledger.tradersInCity("Cambridge"));
+            System.out.println(Arrays.toString(ledger.valuesInCity("Cambridge")));   // [300, 1000, 400, 950]
+            System.out.println(ledger.maxValue().getAsInt());   // 1000
+            System.out.println(ledger.toTransaction(ledger.minValueRow()));   // brian 2011 300
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".traders"));
+        }
+    }
+
+    /**
+     * 声明式查询：test4（先 map 再 filter）与 test5（先 filter 再 map）得到相同的执行计划，
+     * 城市条件下推到索引，去重在投影之前按交易员 id 完成
+     * test9 的写法在查询中同样成立：select(TRADER) 之后的条件只能作用在交易员上
+     */
+    @Test
+    public void test23(){
+        TransactionStore store = TransactionStore.of(transactions);
+        TransactionQuery<Trader> test4 = TransactionQuery.from(store)
+                .select(Column.TRADER)
+                .where(Condition.city("Cambridge"))
+                .distinct()
+                .orderBy(Comparator.comparing(Trader::getName));
+        TransactionQuery<Trader> test5 = TransactionQuery.from(store)
+                .where(Condition.city("Cambridge"))
+                .select(Column.TRADER)
+                .distinct()
+                .orderBy(Comparator.comparing(Trader::getName));
+        System.out.println(test4.list());   // [Trader: Alan in Cambridge, Trader: Brian in Cambridge, Trader: Troul in Cambridge]
+        System.out.println(test4.explain().equals(test5.explain()));   // true
+        System.out.println(test4.explain());
+        // IndexScan[city=Cambridge]
+        // Fused[Distinct[TRADER]]
+        // Sort[by TRADER]
+        // Project[TRADER]
+
+        System.out.println(TransactionQuery.from(store)
+                .select(Column.TRADER)
+                .where(trader -> trader.getCity().equals("Milan"))
+                .distinct()
+                .list());   // [Trader: Mario in Milan]
+
+        TransactionQuery<Integer> top2 = TransactionQuery.from(store)
+                .where(Condition.year(2012))
+                .select(Column.VALUE)
+                .orderBy(Comparator.reverseOrder())
+                .limit(2);
+        System.out.println(top2.list());      // [1000, 950]
+        System.out.println(top2.explain());   // IndexScan[year=2012] / TopK[2 by VALUE] / Project[VALUE]
+    }
+
+    /**
+     * 查询结果缓存：结构相同的查询直接返回上次的结果
+     * 新交易只使依赖范围包含它的结果失效：米兰的交易不影响 剑桥的交易员 的缓存
+     * 比较器复用同一个实例，查询的键才会相等
+     */
+    @Test
+    public void test24(){
+        QueryCache cache = new QueryCache(transactions, 100, 10, TimeUnit.MINUTES);
+        Comparator<Trader> byName = Comparator.comparing(Trader::getName);
+        Supplier<TransactionQuery<String>> names = () -> cache.query()
+                .select(Column.TRADER_NAME).distinct().orderBy(Comparator.naturalOrder());
+        Supplier<TransactionQuery<Trader>> cambridge = () -> cache.query()
+                .where(Condition.city("Cambridge")).select(Column.TRADER).distinct().orderBy(byName);
+
+        System.out.println(cache.list(names.get()));       // [Alan, Brian, Mario, Troul]
+        cache.list(names.get());
+        cache.list(cambridge.get());
+        cache.add(new Transaction(mario, 2012, 500));
+        System.out.println(cache.list(cambridge.get()));   // [Trader: Alan in Cambridge, Trader: Brian in Cambridge, Trader: Troul in Cambridge]
+        cache.add(new Transaction(new Trader("Zoe", "Cambridge"), 2013, 100));
+        System.out.println(cache.list(cambridge.get()));   // [..., Trader: Troul in Cambridge, Trader: Zoe in Cambridge]
+        System.out.println(cache.stats());                 // CacheStats{hits=2, misses=3, evictions=0, invalidations=2}
+    }
+
+    /**
+     * 交易写成二进制列式快照，再直接加载成带索引的交易存储
+     */
+    @Test
+    public void test25() throws IOException {
+        Path file = Files.createTempFile("transactions", ".snapshot");
+        try {
+            TransactionSnapshotWriter.write(file, transactions);
+            System.out.println(Files.size(file));   // 123
+            TransactionStore store = TransactionSnapshotReader.load(file);
+            System.out.println(store.size());       // 6
+            System.out.println(Arrays.toString(store.query().city("Cambridge").values()));   // [300, 1000, 400, 950]
+
+            // 损坏的块长度在分配缓冲之前就报错，E 块之后的多余数据同样报错
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] corrupted = bytes.clone();
+            corrupted[9] = 0x7F;
+            Files.write(file, corrupted);
+            try {
+                TransactionSnapshotReader.load(file);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());   // block 0: invalid block length 2130706492
+            }
+            Files.write(file, Arrays.copyOf(bytes, bytes.length + 1));
+            try {
+                TransactionSnapshotReader.load(file);
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());   // block 3: trailing data after end block
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * 查询缓存自己持有交易存储：公开的构造方法、方法都不接收也不返回存储，查询也拿不到存储，
+     * 调用方没有绕过 QueryCache.add 直接写入的途径；不是由缓存创建的查询会被拒绝
+     */
+    @Test
+    public void test26() throws IOException {
+        List<String> exposed = new ArrayList<>();
+        for (Constructor<?> constructor : QueryCache.class.getConstructors()) {
+            for (Class<?> type : constructor.getParameterTypes()) {
+                if (isStorage(type)) {
+                    exposed.add(constructor.toString());
+                }
+            }
+        }
+        for (Method method : QueryCache.class.getMethods()) {
+            if (isStorage(method.getReturnType()) || Arrays.stream(method.getParameterTypes()).anyMatch(TransactionTest::isStorage)) {
+                exposed.add(method.toString());
+            }
+        }
+        for (Method method : TransactionQuery.class.getMethods()) {
+            if (isStorage(method.getReturnType())) {
+                exposed.add(method.toString());
+            }
+        }
+        System.out.println(exposed);   // []
+
+        QueryCache cache = new QueryCache(transactions, 100, 10, TimeUnit.MINUTES);
+        try {
+            cache.list(TransactionQuery.from(transactions));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());   // query is not built by this cache
+        }
+
+        Path file = Files.createTempFile("transactions", ".snapshot");
+        try {
+            TransactionSnapshotWriter.write(file, transactions);
+            QueryCache loaded = QueryCache.load(file, 100, 10, TimeUnit.MINUTES);
+            System.out.println(loaded.list(loaded.query().where(Condition.city("Milan")).select(Column.VALUE)));   // [710, 700]
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static boolean isStorage(Class<?> type) {
+        return TransactionStore.class.isAssignableFrom(type) || TransactionTable.class.isAssignableFrom(type);
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.stream.web;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 菜单、交易分析的 HTTP 服务
+ */
+@SpringBootApplication
+public class AnalyticsApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(AnalyticsApplication.class, args);
+    }
+}
@@ -0,0 +1,71 @@
+package com.stream.web;
+
+import com.stream.bean.Creater;
+import com.stream.bean.DishTable;
+import com.stream.bean.TransactionSnapshotReader;
+import com.stream.bean.TransactionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 分析服务的数据和线程池
+ * 查询都在 analyticsExecutor 中执行，线程数与 CPU 核数相同，请求线程只负责接收请求；
+ * 队列满时直接拒绝（返回 503），而不是让请求无限排队、拖慢所有请求。
+ * 流式输出的响应体在单独的 streamingExecutor 中写出（见 AnalyticsWebConfig）：写出时会阻塞在慢客户端的套接字上，
+ * 不能占用查询线程，所以线程数单独配置。
+ * 线程池由 Spring 初始化和关闭。
+ * 菜单和交易在启动时加载，之后只读，可以被多个查询线程同时读取。
+ */
+@Configuration
+public class AnalyticsConfig {
+
+    /**
+     * 执行查询的线程池
+     */
+    @Bean
+    public ThreadPoolTaskExecutor analyticsExecutor(@Value("${analytics.executor.threads:0}") int threads,
+                                                    @Value("${analytics.executor.queue-capacity:64}") int queueCapacity) {
+        return executor("analytics-", threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), queueCapacity);
+    }
+
+    /**
+     * 写出流式响应体的线程池
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamingExecutor(@Value("${analytics.streaming.threads:16}") int threads,
+                                                    @Value("${analytics.streaming.queue-capacity:64}") int queueCapacity) {
+        return executor("analytics-stream-", threads, queueCapacity);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        return executor;
+    }
+
+    @Bean
+    public DishTable menu() {
+        return DishTable.of(Creater.createDish());
+    }
+
+    /**
+     * 配置了 analytics.snapshot 时从交易快照加载，否则使用示例交易
+     */
+    @Bean
+    public TransactionStore transactionStore(@Value("${analytics.snapshot:}") String snapshot) throws IOException {
+        if (snapshot.isEmpty()) {
+            return TransactionStore.of(Creater.createTransaction());
+        }
+        return TransactionSnapshotReader.load(Paths.get(snapshot));
+    }
+}
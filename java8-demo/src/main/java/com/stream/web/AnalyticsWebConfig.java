@@ -0,0 +1,32 @@
+package com.stream.web;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * MVC 异步处理使用 streamingExecutor，流式响应体在这个线程池中写出，不占用查询线程
+ */
+@Configuration
+public class AnalyticsWebConfig implements WebMvcConfigurer {
+
+    private final ThreadPoolTaskExecutor streamingExecutor;
+    private final long timeout;
+
+    public AnalyticsWebConfig(@Qualifier("streamingExecutor") ThreadPoolTaskExecutor streamingExecutor,
+                              @Value("${analytics.executor.timeout-millis:30000}") long timeout) {
+        this.streamingExecutor = streamingExecutor;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor);
+        configurer.setDefaultTimeout(timeout);
+    }
+}
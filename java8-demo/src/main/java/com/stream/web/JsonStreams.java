@@ -0,0 +1,53 @@
+package com.stream.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.PrimitiveIterator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 以 JSON 数组流式输出查询结果
+ * 查询和输出都在响应体的异步线程（streamingExecutor）中进行；查询以行号流的形式边执行边产生，
+ * 每行直接写入响应流，每 FLUSH_ROWS 行刷新一次（分块传输），内存中不保存整个结果列表。
+ */
+final class JsonStreams {
+
+    private static final int FLUSH_ROWS = 1024;
+
+    /**
+     * 写出一行
+     */
+    @FunctionalInterface
+    interface RowWriter {
+        void write(JsonGenerator generator, int row) throws IOException;
+    }
+
+    private JsonStreams() {
+    }
+
+    static ResponseEntity<StreamingResponseBody> array(ObjectMapper mapper, Supplier<IntStream> query, RowWriter writer) {
+        StreamingResponseBody body = out -> {
+            PrimitiveIterator.OfInt rows = query.get().iterator();
+            JsonGenerator generator = mapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            for (int i = 1; rows.hasNext(); i++) {
+                writer.write(generator, rows.nextInt());
+                if (i % FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.close();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
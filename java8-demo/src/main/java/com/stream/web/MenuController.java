@@ -0,0 +1,110 @@
+package com.stream.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.bean.CaloricLevel;
+import com.stream.bean.Dish;
+import com.stream.bean.DishTable;
+import com.stream.collector.EnumCollectors;
+import com.stream.collector.TopKCollectors;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 菜单分析接口，对应 DishTest 中的分组、汇总、前 K 个查询
+ * 查询在 analyticsExecutor 中执行，请求线程立即返回；流式输出在 streamingExecutor 中写出。
+ */
+@RestController
+@RequestMapping("/menu")
+public class MenuController {
+
+    private final DishTable menu;
+    private final ThreadPoolTaskExecutor executor;
+    private final ObjectMapper mapper;
+
+    public MenuController(DishTable menu, @Qualifier("analyticsExecutor") ThreadPoolTaskExecutor analyticsExecutor,
+                          ObjectMapper mapper) {
+        this.menu = menu;
+        this.executor = analyticsExecutor;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 热量的汇总信息
+     */
+    @GetMapping("/summary")
+    public CompletableFuture<IntSummaryStatistics> summary() {
+        return CompletableFuture.supplyAsync(menu::summarizeCalories, executor);
+    }
+
+    /**
+     * 每种类型的菜肴数
+     */
+    @GetMapping("/count-by-type")
+    public CompletableFuture<Map<Dish.Type, Long>> countByType() {
+        return CompletableFuture.supplyAsync(menu::countByType, executor);
+    }
+
+    /**
+     * 每种类型的热量之和
+     */
+    @GetMapping("/calories-by-type")
+    public CompletableFuture<Map<Dish.Type, Long>> caloriesByType() {
+        return CompletableFuture.supplyAsync(menu::sumCaloriesByType, executor);
+    }
+
+    /**
+     * 每个热量等级的热量汇总
+     */
+    @GetMapping("/calories-by-level")
+    public CompletableFuture<Map<CaloricLevel, IntSummaryStatistics>> caloriesByLevel() {
+        return CompletableFuture.supplyAsync(
+                () -> menu.dishes().collect(EnumCollectors.summarizingCaloriesByCaloricLevel()), executor);
+    }
+
+    /**
+     * 热量最高的 k 道菜
+     */
+    @GetMapping("/top")
+    public CompletableFuture<List<Dish>> top(@RequestParam(defaultValue = "3") int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        return CompletableFuture.supplyAsync(
+                () -> menu.dishes().collect(TopKCollectors.highestCalories(k)), executor);
+    }
+
+    /**
+     * 热量在 [from, to) 区间内的菜肴，流式输出
+     */
+    @GetMapping("/dishes")
+    public ResponseEntity<StreamingResponseBody> dishes(@RequestParam(defaultValue = "" + Integer.MIN_VALUE) int from,
+                                                        @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int to) {
+        Supplier<IntStream> rows = () -> menu.rows().filter(row -> {
+            int calories = menu.getCalories(row);
+            return calories >= from && calories < to;
+        });
+        return JsonStreams.array(mapper, rows, (generator, row) -> {
+            generator.writeStartObject();
+            generator.writeStringField("name", menu.getName(row));
+            generator.writeBooleanField("vegetarian", menu.isVegetarian(row));
+            generator.writeNumberField("calories", menu.getCalories(row));
+            generator.writeStringField("type", menu.getType(row).name());
+            generator.writeEndObject();
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package com.stream.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stream.bean.Trader;
+import com.stream.bean.Transaction;
+import com.stream.bean.TransactionStore;
+import com.stream.bean.TransactionTable;
+import com.stream.query.Column;
+import com.stream.query.Condition;
+import com.stream.query.TransactionQuery;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Comparator;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-29
+ * 交易分析接口，对应 TransactionTest 中的去重、排序、前 K 个、汇总查询
+ * 查询通过 TransactionQuery 执行，年份、城市条件走索引；查询在 analyticsExecutor 中执行，请求线程立即返回；流式输出在 streamingExecutor 中写出。
+ */
+@RestController
+@RequestMapping("/trades")
+public class TradeController {
+
+    private static final Comparator<Trader> BY_NAME = Comparator.comparing(Trader::getName);
+
+    private final TransactionStore store;
+    private final ThreadPoolTaskExecutor executor;
+    private final ObjectMapper mapper;
+
+    public TradeController(TransactionStore transactionStore,
+                           @Qualifier("analyticsExecutor") ThreadPoolTaskExecutor analyticsExecutor,
+                           ObjectMapper mapper) {
+        this.store = transactionStore;
+        this.executor = analyticsExecutor;
+        this.mapper = mapper;
+    }
+
+    /**
+     * 交易员工作过的城市，对应 test2
+     */
+    @GetMapping("/cities")
+    public CompletableFuture<List<String>> cities() {
+        return CompletableFuture.supplyAsync(
+                () -> TransactionQuery.from(store).select(Column.CITY).distinct().list(), executor);
+    }
+
+    /**
+     * 有交易的交易员，按姓名排序，可以按城市过滤，对应 test4、test5
+     */
+    @GetMapping("/traders")
+    public CompletableFuture<List<Trader>> traders(@RequestParam(required = false) String city) {
+        return CompletableFuture.supplyAsync(() -> {
+            TransactionQuery<Transaction> query = TransactionQuery.from(store);
+            if (city != null) {
+                query.where(Condition.city(city));
+            }
+            return query.select(Column.TRADER).distinct().orderBy(BY_NAME).list();
+        }, executor);
+    }
+
+    /**
+     * 交易额最高的 k 笔交易，可以按年份、城市过滤
+     */
+    @GetMapping("/top")
+    public CompletableFuture<List<Transaction>> top(@RequestParam(defaultValue = "5") int k,
+                                                    @RequestParam(required = false) Integer year,
+                                                    @RequestParam(required = false) String city) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        return CompletableFuture.supplyAsync(() -> where(year, city)
+                .orderBy(Comparator.comparingInt(Transaction::getValue).reversed())
+                .limit(k)
+                .list(), executor);
+    }
+
+    /**
+     * 交易额的汇总信息，可以按年份、城市过滤，对应 test12 ~ test15
+     */
+    @GetMapping("/summary")
+    public CompletableFuture<IntSummaryStatistics> summary(@RequestParam(required = false) Integer year,
+                                                           @RequestParam(required = false) String city) {
+        return CompletableFuture.supplyAsync(() -> {
+            TransactionTable table = store.table();
+            IntSummaryStatistics statistics = new IntSummaryStatistics();
+            for (int row : where(year, city).rows()) {
+                statistics.accept(table.getValue(row));
+            }
+            return statistics;
+        }, executor);
+    }
+
+    /**
+     * 满足条件的所有交易，流式输出，对应 test1、test10
+     */
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> list(@RequestParam(required = false) Integer year,
+                                                      @RequestParam(required = false) String city) {
+        TransactionTable table = store.table();
+        return JsonStreams.array(mapper, () -> where(year, city).rowStream(), (generator, row) -> {
+            Trader trader = table.getTrader(row);
+            generator.writeStartObject();
+            generator.writeStringField("trader", trader.getName());
+            generator.writeStringField("city", trader.getCity());
+            generator.writeNumberField("year", table.getYear(row));
+            generator.writeNumberField("value", table.getValue(row));
+            generator.writeEndObject();
+        });
+    }
+
+    private TransactionQuery<Transaction> where(Integer year, String city) {
+        TransactionQuery<Transaction> query = TransactionQuery.from(store);
+        if (year != null) {
+            query.where(Condition.year(year));
+        }
+        if (city != null) {
+            query.where(Condition.city(city));
+        }
+        return query;
+    }
+}
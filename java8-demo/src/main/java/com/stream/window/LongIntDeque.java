@@ -0,0 +1,96 @@
+package com.stream.window;
+
+import java.util.NoSuchElementException;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-24
+ * 保存 (long, int) 对的环形双端队列，两端的操作都是 O(1)，容量不足时翻倍
+ * 使用两个原始类型数组，不创建节点对象。
+ */
+final class LongIntDeque {
+
+    private long[] keys;
+    private int[] values;
+    private int head;
+    private int size;
+
+    LongIntDeque() {
+        keys = new long[16];
+        values = new int[16];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void addLast(long key, int value) {
+        if (size == keys.length) {
+            grow();
+        }
+        int tail = (head + size) & (keys.length - 1);
+        keys[tail] = key;
+        values[tail] = value;
+        size++;
+    }
+
+    void removeFirst() {
+        checkNotEmpty();
+        head = (head + 1) & (keys.length - 1);
+        size--;
+    }
+
+    void removeLast() {
+        checkNotEmpty();
+        size--;
+    }
+
+    long firstKey() {
+        checkNotEmpty();
+        return keys[head];
+    }
+
+    int firstValue() {
+        checkNotEmpty();
+        return values[head];
+    }
+
+    int lastValue() {
+        checkNotEmpty();
+        return values[(head + size - 1) & (keys.length - 1)];
+    }
+
+    long lastKey() {
+        checkNotEmpty();
+        return keys[(head + size - 1) & (keys.length - 1)];
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int length = keys.length;
+        long[] newKeys = new long[length << 1];
+        int[] newValues = new int[length << 1];
+        for (int i = 0; i < size; i++) {
+            int j = (head + i) & (length - 1);
+            newKeys[i] = keys[j];
+            newValues[i] = values[j];
+        }
+        keys = newKeys;
+        values = newValues;
+        head = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+}
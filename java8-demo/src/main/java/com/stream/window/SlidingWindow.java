@@ -0,0 +1,170 @@
+package com.stream.window;
+
+import com.stream.bean.Transaction;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-24
+ * 交易额的滑动窗口：最近 N 笔交易，或者最近一段时间内的交易
+ * 每次添加、淘汰都是均摊 O(1)：
+ * 和：加入时加上、淘汰时减去；
+ * 最大/最小值：单调队列，队头就是窗口内的最值，新值入队时从队尾弹出不可能再成为最值的旧值。
+ * 读取统计结果为 O(1)，看板轮询时不需要重新计算整个窗口。
+ * 非线程安全。
+ */
+public final class SlidingWindow {
+
+    private final boolean timeBased;
+    private final long length;
+
+    /**
+     * 窗口内的 (时间戳, 交易额)，按个数划分时时间戳就是序号
+     */
+    private final LongIntDeque entries = new LongIntDeque();
+    /**
+     * (序号, 交易额)，交易额单调递减
+     */
+    private final LongIntDeque maxQueue = new LongIntDeque();
+    /**
+     * (序号, 交易额)，交易额单调递增
+     */
+    private final LongIntDeque minQueue = new LongIntDeque();
+    /**
+     * 窗口内第一个元素的序号
+     */
+    private long firstSeq;
+    private long nextSeq;
+    private long sum;
+    private long now = Long.MIN_VALUE;
+
+    private SlidingWindow(boolean timeBased, long length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("window length must be positive: " + length);
+        }
+        this.timeBased = timeBased;
+        this.length = length;
+    }
+
+    /**
+     * 最近 size 笔交易
+     */
+    public static SlidingWindow ofCount(int size) {
+        return new SlidingWindow(false, size);
+    }
+
+    /**
+     * 最近 duration 时间内的交易，时间戳单位为毫秒
+     */
+    public static SlidingWindow ofTime(long duration, TimeUnit unit) {
+        return new SlidingWindow(true, unit.toMillis(duration));
+    }
+
+    public void accept(Transaction transaction) {
+        add(transaction.getValue());
+    }
+
+    public void accept(Transaction transaction, long timestamp) {
+        add(transaction.getValue(), timestamp);
+    }
+
+    /**
+     * 按个数划分的窗口添加一个值
+     */
+    public void add(int value) {
+        if (timeBased) {
+            throw new IllegalStateException("time based window requires a timestamp");
+        }
+        push(nextSeq, value);
+        while (entries.size() > length) {
+            evict();
+        }
+    }
+
+    /**
+     * 按时间划分的窗口添加一个值，时间戳必须单调不减
+     */
+    public void add(int value, long timestamp) {
+        if (!timeBased) {
+            throw new IllegalStateException("count based window does not take timestamps");
+        }
+        if (timestamp < now) {
+            throw new IllegalArgumentException("timestamp goes backwards: " + timestamp + " < " + now);
+        }
+        push(timestamp, value);
+        advanceTo(timestamp);
+    }
+
+    /**
+     * 按时间划分的窗口推进到 timestamp，淘汰 timestamp - length 之前（含）的交易
+     */
+    public void advanceTo(long timestamp) {
+        if (!timeBased) {
+            throw new IllegalStateException("count based window does not take timestamps");
+        }
+        now = Math.max(now, timestamp);
+        while (!entries.isEmpty() && entries.firstKey() <= now - length) {
+            evict();
+        }
+    }
+
+    public long count() {
+        return entries.size();
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public int max() {
+        return maxQueue.isEmpty() ? Integer.MIN_VALUE : maxQueue.firstValue();
+    }
+
+    public int min() {
+        return minQueue.isEmpty() ? Integer.MAX_VALUE : minQueue.firstValue();
+    }
+
+    public double average() {
+        return entries.isEmpty() ? 0.0d : (double) sum / entries.size();
+    }
+
+    public WindowStats stats() {
+        long start;
+        long end;
+        if (timeBased) {
+            end = now == Long.MIN_VALUE ? 0 : now + 1;
+            start = end - length;
+        } else {
+            start = firstSeq;
+            end = nextSeq;
+        }
+        return new WindowStats(start, end, count(), sum, min(), max());
+    }
+
+    private void push(long key, int value) {
+        long seq = nextSeq++;
+        entries.addLast(key, value);
+        sum += value;
+        while (!maxQueue.isEmpty() && maxQueue.lastValue() <= value) {
+            maxQueue.removeLast();
+        }
+        maxQueue.addLast(seq, value);
+        while (!minQueue.isEmpty() && minQueue.lastValue() >= value) {
+            minQueue.removeLast();
+        }
+        minQueue.addLast(seq, value);
+    }
+
+    private void evict() {
+        sum -= entries.firstValue();
+        entries.removeFirst();
+        long seq = firstSeq++;
+        if (maxQueue.firstKey() == seq) {
+            maxQueue.removeFirst();
+        }
+        if (minQueue.firstKey() == seq) {
+            minQueue.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.stream.window;
+
+import com.stream.bean.Transaction;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-24
+ * 交易额的滚动窗口：每 N 笔交易，或者每个固定的时间段，输出一次统计结果
+ * 窗口之间不重叠，每个窗口只需要 个数、和、最值 四个累加值，每次添加 O(1)。
+ * 按时间划分时窗口对齐到 duration 的整数倍，即 [k * duration, (k + 1) * duration)，没有交易的窗口不输出。
+ * 时间戳不能小于已经见过的最大时间戳（水位），已经输出的窗口不会被迟到的交易重新打开。
+ * 非线程安全。
+ */
+public final class TumblingWindow {
+
+    private final boolean timeBased;
+    private final long length;
+    private final Consumer<? super WindowStats> listener;
+
+    private long start;
+    private long seq;
+    private long count;
+    private long sum;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+    private boolean started;
+    /**
+     * 已经见过的最大时间戳，flush 之后为已输出窗口的结束时间
+     */
+    private long watermark = Long.MIN_VALUE;
+
+    private TumblingWindow(boolean timeBased, long length, Consumer<? super WindowStats> listener) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("window length must be positive: " + length);
+        }
+        this.timeBased = timeBased;
+        this.length = length;
+        this.listener = listener;
+    }
+
+    /**
+     * 每 size 笔交易输出一次
+     */
+    public static TumblingWindow ofCount(int size, Consumer<? super WindowStats> listener) {
+        return new TumblingWindow(false, size, listener);
+    }
+
+    /**
+     * 每 duration 时间输出一次，时间戳单位为毫秒
+     */
+    public static TumblingWindow ofTime(long duration, TimeUnit unit, Consumer<? super WindowStats> listener) {
+        return new TumblingWindow(true, unit.toMillis(duration), listener);
+    }
+
+    public void accept(Transaction transaction) {
+        add(transaction.getValue());
+    }
+
+    public void accept(Transaction transaction, long timestamp) {
+        add(transaction.getValue(), timestamp);
+    }
+
+    public void add(int value) {
+        if (timeBased) {
+            throw new IllegalStateException("time based window requires a timestamp");
+        }
+        accumulate(value);
+        seq++;
+        if (count == length) {
+            emit(start, seq);
+            start = seq;
+        }
+    }
+
+    /**
+     * 时间戳必须单调不减，小于水位时抛出 IllegalArgumentException
+     */
+    public void add(int value, long timestamp) {
+        advanceTo(timestamp);
+        if (!started) {
+            start = Math.floorDiv(timestamp, length) * length;
+            started = true;
+        }
+        accumulate(value);
+    }
+
+    /**
+     * 时间推进到 timestamp，已经结束的窗口立即输出
+     */
+    public void advanceTo(long timestamp) {
+        if (!timeBased) {
+            throw new IllegalStateException("count based window does not take timestamps");
+        }
+        if (timestamp < watermark) {
+            throw new IllegalArgumentException("timestamp goes backwards: " + timestamp + " < " + watermark);
+        }
+        watermark = timestamp;
+        if (started && timestamp >= start + length) {
+            emit(start, start + length);
+            started = false;
+        }
+    }
+
+    /**
+     * 输出当前未满的窗口
+     */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        if (timeBased) {
+            emit(start, start + length);
+            started = false;
+            watermark = Math.max(watermark, start + length);
+        } else {
+            emit(start, seq);
+            start = seq;
+        }
+    }
+
+    private void accumulate(int value) {
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private void emit(long from, long to) {
+        WindowStats stats = new WindowStats(from, to, count, sum, min, max);
+        count = 0;
+        sum = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+        listener.accept(stats);
+    }
+}
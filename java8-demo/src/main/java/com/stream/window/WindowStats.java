@@ -0,0 +1,67 @@
+package com.stream.window;
+
+/**
+ * @author zyting
+ * @sinne 2020-07-24
+ * 一个窗口的统计结果
+ * start、end 为窗口的范围：按个数划分时是交易的序号，按时间划分时是时间戳，均为 [start, end)。
+ * 窗口为空时 min 为 Integer.MAX_VALUE，max 为 Integer.MIN_VALUE，与 IntSummaryStatistics 一致。
+ */
+public final class WindowStats {
+
+    private final long start;
+    private final long end;
+    private final long count;
+    private final long sum;
+    private final int min;
+    private final int max;
+
+    WindowStats(long start, long end, long count, long sum, int min, int max) {
+        this.start = start;
+        this.end = end;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count > 0 ? (double) sum / count : 0.0d;
+    }
+
+    @Override
+    public String toString() {
+        return "WindowStats{" +
+                "start=" + start +
+                ", end=" + end +
+                ", count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                '}';
+    }
+}